@@ -0,0 +1,239 @@
+package com.knapp.codingcontest.cc20160408.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the benchmarks and prints time and allocation per operation
+ * <p>
+ * Usage: BenchRunner [-wi warmupIterations] [-i iterations] [-r millisPerIteration] [-s factor,...] [regex]
+ * <p>
+ * Every iteration invokes the benchmark until the iteration time is used up (at least once).
+ * Besides the time per operation the allocated bytes per operation and the allocation rate of the
+ * measured code are reported, together with the number and duration of the garbage collections
+ * during the measurement iterations. Everything the code under test writes to System.err is discarded.
+ */
+public final class BenchRunner {
+	// ----------------------------------------------------------------------------
+
+	private int warmupIterations = 3;
+	private int iterations = 5;
+	private long iterationMillis = 1000;
+	private int[] factors = {1, 4};
+	private Pattern filter = null;
+
+	private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+	private final boolean allocationSupported;
+
+	/**
+	 * consumes the results of the benchmarks
+	 */
+	private volatile int sink;
+
+	// ----------------------------------------------------------------------------
+
+
+	private BenchRunner() {
+
+		allocationSupported = (threadBean instanceof com.sun.management.ThreadMXBean) &&
+		                      ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported();
+		if(allocationSupported) {
+			((com.sun.management.ThreadMXBean) threadBean).setThreadAllocatedMemoryEnabled(true);
+		}
+	}
+
+
+	public static void main(final String... args)
+			throws Exception {
+
+		final BenchRunner runner = new BenchRunner();
+		for(int i = 0; i < args.length; ++i) {
+			if("-wi".equals(args[i])) {
+				runner.warmupIterations = Integer.parseInt(args[++i]);
+			} else if("-i".equals(args[i])) {
+				runner.iterations = Integer.parseInt(args[++i]);
+			} else if("-r".equals(args[i])) {
+				runner.iterationMillis = Long.parseLong(args[++i]);
+			} else if("-s".equals(args[i])) {
+				final String[] values = args[++i].split(",");
+				runner.factors = new int[values.length];
+				for(int v = 0; v < values.length; ++v) {
+					runner.factors[v] = Integer.parseInt(values[v].trim());
+				}
+			} else {
+				runner.filter = Pattern.compile(args[i]);
+			}
+		}
+
+		final PrintStream err = System.err;
+		System.setErr(new PrintStream(new OutputStream() {
+			@Override
+			public void write(final int b) {
+
+			}
+
+
+			@Override
+			public void write(final byte[] b, final int off, final int len) {
+
+			}
+		}));
+		try {
+			System.out.println(String.format("%-50s %14s %12s %14s %10s %8s %8s",
+			                                 "Benchmark",
+			                                 "ns/op",
+			                                 "error",
+			                                 "alloc B/op",
+			                                 "MB/s",
+			                                 "gc.count",
+			                                 "gc.ms"));
+			for(final Benchmark benchmark : runner.createBenchmarks()) {
+				if((runner.filter == null) || runner.filter.matcher(benchmark.getName()).find()) {
+					runner.execute(benchmark);
+				}
+			}
+		} finally {
+			System.setErr(err);
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private List<Benchmark> createBenchmarks() {
+
+		final List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		for(final int factor : factors) {
+			benchmarks.add(LoaderBenchmarks.parseCsv(factor));
+			benchmarks.add(LoaderBenchmarks.createInput(factor));
+			benchmarks.add(LoaderBenchmarks.readSnapshot(factor));
+			benchmarks.add(LoaderBenchmarks.removePickOrders(factor));
+			for(final SchedulerBenchmarks.Step step : SchedulerBenchmarks.Step.values()) {
+				benchmarks.add(SchedulerBenchmarks.tick(step, factor));
+			}
+			benchmarks.add(SchedulerBenchmarks.run(factor));
+		}
+		return benchmarks;
+	}
+
+
+	private void execute(final Benchmark benchmark)
+			throws Exception {
+
+		benchmark.setUp();
+		for(int i = 0; i < warmupIterations; ++i) {
+			iterate(benchmark);
+		}
+
+		final long gcCountBefore = BenchRunner.gcCount();
+		final long gcMillisBefore = BenchRunner.gcMillis();
+		final double[] nanosPerOperation = new double[iterations];
+		long operations = 0;
+		long nanos = 0;
+		long allocatedBytes = 0;
+		for(int i = 0; i < iterations; ++i) {
+			final Iteration iteration = iterate(benchmark);
+			nanosPerOperation[i] = (double) iteration.nanos / iteration.operations;
+			operations += iteration.operations;
+			nanos += iteration.nanos;
+			allocatedBytes += iteration.allocatedBytes;
+		}
+
+		double mean = 0;
+		for(final double value : nanosPerOperation) {
+			mean += value;
+		}
+		mean /= iterations;
+		double variance = 0;
+		for(final double value : nanosPerOperation) {
+			variance += (value - mean) * (value - mean);
+		}
+		final double error = (iterations > 1) ? Math.sqrt(variance / (iterations - 1)) : Double.NaN;
+
+		System.out.println(String.format("%-50s %14.1f %12.1f %14s %10s %8d %8d",
+		                                 benchmark.getName(),
+		                                 mean,
+		                                 error,
+		                                 allocationSupported ? String.format("%.1f", (double) allocatedBytes / operations) : "n/a",
+		                                 allocationSupported
+		                                 ? String.format("%.1f", (allocatedBytes / (1024.0 * 1024.0)) / (nanos / 1e9))
+		                                 : "n/a",
+		                                 BenchRunner.gcCount() - gcCountBefore,
+		                                 BenchRunner.gcMillis() - gcMillisBefore));
+	}
+
+
+	private Iteration iterate(final Benchmark benchmark)
+			throws Exception {
+
+		final Iteration iteration = new Iteration();
+		final long iterationNanos = iterationMillis * 1000000L;
+		final long start = System.nanoTime();
+		do {
+			benchmark.prepare();
+
+			final long allocatedBefore = allocatedBytes();
+			final long before = System.nanoTime();
+			final Object result = benchmark.invoke();
+			final long after = System.nanoTime();
+			final long allocatedAfter = allocatedBytes();
+
+			sink += System.identityHashCode(result);
+			iteration.nanos += benchmark.getMeasuredNanos(after - before);
+			benchmark.cleanUp(result);
+
+			iteration.allocatedBytes += allocatedAfter - allocatedBefore;
+			iteration.operations += benchmark.getOperationsPerInvocation();
+		} while((System.nanoTime() - start) < iterationNanos);
+		return iteration;
+	}
+
+	// ............................................................................
+
+
+	private long allocatedBytes() {
+
+		return allocationSupported ?
+		       ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId()) :
+		       0;
+	}
+
+
+	private static long gcCount() {
+
+		long count = 0;
+		for(final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, bean.getCollectionCount());
+		}
+		return count;
+	}
+
+
+	private static long gcMillis() {
+
+		long millis = 0;
+		for(final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			millis += Math.max(0, bean.getCollectionTime());
+		}
+		return millis;
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+	/**
+	 * Totals of one iteration
+	 */
+	private static class Iteration {
+
+		private long operations = 0;
+		private long nanos = 0;
+		private long allocatedBytes = 0;
+	}
+}
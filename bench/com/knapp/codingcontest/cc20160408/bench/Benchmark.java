@@ -0,0 +1,111 @@
+package com.knapp.codingcontest.cc20160408.bench;
+
+import com.knapp.codingcontest.cc20160408.util.Contract;
+
+/**
+ * A single benchmark executed by the BenchRunner
+ * <p>
+ * Only invoke is measured; setUp runs once before the warmup, prepare and cleanUp
+ * run around every invocation (for benchmarks that consume their state). Benchmarks that
+ * time a part of the invocation themselves report it with getMeasuredNanos.
+ */
+public abstract class Benchmark {
+	// ----------------------------------------------------------------------------
+
+	private final String name;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param name name of the benchmark, used for filtering and in the report
+	 */
+	protected Benchmark(final String name) {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(name), "name mandatory but is null or whitespace");
+
+		this.name = name;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	public final String getName() {
+
+		return name;
+	}
+
+
+	/**
+	 * Number of operations that are done by one invocation, the results are reported per operation
+	 *
+	 * @return
+	 */
+	public int getOperationsPerInvocation() {
+
+		return 1;
+	}
+
+
+	/**
+	 * The time of the measured work of the last invocation
+	 *
+	 * @param invokeNanos the time the runner measured for invoke
+	 *
+	 * @return invokeNanos, unless the benchmark measures a part of the invocation itself
+	 */
+	public long getMeasuredNanos(final long invokeNanos) {
+
+		return invokeNanos;
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * Called once before the first invocation (not measured)
+	 *
+	 * @throws Exception
+	 */
+	public void setUp()
+			throws Exception {
+
+	}
+
+
+	/**
+	 * Called before every invocation (not measured)
+	 *
+	 * @throws Exception
+	 */
+	public void prepare()
+			throws Exception {
+
+	}
+
+
+	/**
+	 * The measured code
+	 *
+	 * @return a result of the work, consumed by the runner so the work cannot be optimized away
+	 *
+	 * @throws Exception
+	 */
+	public abstract Object invoke()
+			throws Exception;
+
+
+	/**
+	 * Called after every invocation (not measured)
+	 *
+	 * @param result the result of the invocation
+	 *
+	 * @throws Exception
+	 */
+	public void cleanUp(final Object result)
+			throws Exception {
+
+	}
+
+	// ----------------------------------------------------------------------------
+}
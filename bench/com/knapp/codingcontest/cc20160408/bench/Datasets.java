@@ -0,0 +1,125 @@
+package com.knapp.codingcontest.cc20160408.bench;
+
+import com.knapp.codingcontest.cc20160408.Settings;
+import com.knapp.codingcontest.cc20160408.util.Contract;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Data directories for the benchmarks: the bundled input and copies of it scaled by an integer factor
+ * <p>
+ * A scaled dataset contains the bundled data factor times; every copy but the first gets the suffix
+ * "_&lt;copy&gt;" on its aisles, location codes, product codes and order ids, so the copies are
+ * independent warehouses of the original size side by side.
+ */
+public final class Datasets {
+	// ----------------------------------------------------------------------------
+
+	private static final String[] FILES = {"locations.csv", "products.csv", "pickorders.csv"};
+
+	/**
+	 * fields that get the copy suffix per file, in the sequence of FILES
+	 */
+	private static final int[][] SUFFIXED_FIELDS = {{1, 2}, {0}, {0, 1}};
+
+	// ----------------------------------------------------------------------------
+
+
+	private Datasets() {
+
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Directory of the dataset scaled by the given factor, created on first use
+	 *
+	 * @param factor number of copies of the bundled data, 1 for the bundled data itself
+	 *
+	 * @return full path of the data directory
+	 *
+	 * @throws IOException
+	 */
+	public static String scaled(final int factor)
+			throws IOException {
+
+		Contract.requires(factor >= 1, "factor must be at least 1");
+
+		if(factor == 1) {
+			return Settings.dataPath;
+		}
+
+		final File directory = new File(new File(System.getProperty("java.io.tmpdir"), "kcc2016-bench"), "x" + factor);
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("could not create " + directory);
+		}
+		for(int file = 0; file < Datasets.FILES.length; ++file) {
+			final File target = new File(directory, Datasets.FILES[file]);
+			if(!target.isFile()) {
+				Datasets.replicate(new File(Settings.dataPath, Datasets.FILES[file]), target, factor, Datasets.SUFFIXED_FIELDS[file]);
+			}
+		}
+		return directory.getCanonicalPath();
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private static void replicate(final File source, final File target, final int factor, final int[] suffixedFields)
+			throws IOException {
+
+		final File temporaryFile = new File(target.getPath() + ".tmp");
+		BufferedWriter writer = null;
+		try {
+			writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile), StandardCharsets.UTF_8));
+			for(int copy = 0; copy < factor; ++copy) {
+				BufferedReader reader = null;
+				try {
+					reader = new BufferedReader(new InputStreamReader(new FileInputStream(source), StandardCharsets.UTF_8));
+					String line;
+					while((line = reader.readLine()) != null) {
+						if(line.isEmpty()) {
+							continue;
+						}
+						writer.write((copy == 0) ? line : Datasets.suffix(line, "_" + copy, suffixedFields));
+						writer.write('\n');
+					}
+				} finally {
+					if(reader != null) {
+						reader.close();
+					}
+				}
+			}
+		} finally {
+			if(writer != null) {
+				writer.close();
+			}
+		}
+
+		if(!temporaryFile.renameTo(target)) {
+			throw new IOException("could not rename " + temporaryFile + " to " + target);
+		}
+	}
+
+
+	private static String suffix(final String line, final String suffix, final int[] suffixedFields) {
+
+		final String[] fields = line.split(";", -1);
+		for(final int field : suffixedFields) {
+			fields[field] = fields[field] + suffix;
+		}
+
+		final StringBuilder builder = new StringBuilder(line.length() + (suffixedFields.length * suffix.length()));
+		for(int i = 0; i < fields.length; ++i) {
+			if(i > 0) {
+				builder.append(';');
+			}
+			builder.append(fields[i]);
+		}
+		return builder.toString();
+	}
+
+	// ----------------------------------------------------------------------------
+}
@@ -0,0 +1,192 @@
+package com.knapp.codingcontest.cc20160408.bench;
+
+import com.knapp.codingcontest.cc20160408.Input;
+import com.knapp.codingcontest.cc20160408.data.InputSnapshot;
+import com.knapp.codingcontest.cc20160408.data.LocationCollection;
+import com.knapp.codingcontest.cc20160408.data.PickOrderCollection;
+import com.knapp.codingcontest.cc20160408.data.ProductCollection;
+import com.knapp.codingcontest.cc20160408.entities.PickOrder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks for loading the input and for the bookkeeping of the pick order collection
+ */
+public final class LoaderBenchmarks {
+	// ----------------------------------------------------------------------------
+
+
+	private LoaderBenchmarks() {
+
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Parse the three csv files of a dataset (without using a snapshot) and resolve the products
+	 *
+	 * @param factor scale of the dataset
+	 *
+	 * @return
+	 */
+	public static Benchmark parseCsv(final int factor) {
+
+		return new Benchmark("load.csv[x" + factor + "]") {
+			private String dataPath;
+
+
+			@Override
+			public void setUp()
+					throws Exception {
+
+				dataPath = Datasets.scaled(factor);
+			}
+
+
+			@Override
+			public Object invoke()
+					throws Exception {
+
+				LocationCollection.createFromCsv(dataPath + File.separator + "locations.csv");
+				final ProductCollection productCollection = ProductCollection.createFromCsv(dataPath +
+				                                                                            File.separator +
+				                                                                            "products.csv");
+				return PickOrderCollection.createFromCsv(dataPath + File.separator + "pickorders.csv", productCollection);
+			}
+		};
+	}
+
+
+	/**
+	 * Input.createFromCsv as used by the Program: the first invocation parses the csv files and writes the
+	 * snapshot, the following ones load it
+	 *
+	 * @param factor scale of the dataset
+	 *
+	 * @return
+	 */
+	public static Benchmark createInput(final int factor) {
+
+		return new Benchmark("load.input[x" + factor + "]") {
+			private String dataPath;
+
+
+			@Override
+			public void setUp()
+					throws Exception {
+
+				dataPath = Datasets.scaled(factor);
+			}
+
+
+			@Override
+			public Object invoke()
+					throws Exception {
+
+				return Input.createFromCsv(dataPath);
+			}
+		};
+	}
+
+
+	/**
+	 * Read the collections of a dataset from a snapshot written beforehand
+	 *
+	 * @param factor scale of the dataset
+	 *
+	 * @return
+	 */
+	public static Benchmark readSnapshot(final int factor) {
+
+		return new Benchmark("load.snapshot[x" + factor + "]") {
+			private File snapshot;
+			private long[] fingerprint;
+
+
+			@Override
+			public void setUp()
+					throws Exception {
+
+				final String dataPath = Datasets.scaled(factor);
+				fingerprint = InputSnapshot.fingerprint(dataPath + File.separator + "locations.csv",
+				                                        dataPath + File.separator + "products.csv",
+				                                        dataPath + File.separator + "pickorders.csv");
+				snapshot = File.createTempFile("kcc2016-bench", ".snapshot");
+				snapshot.deleteOnExit();
+
+				final Input input = Input.createFromCsv(dataPath);
+				InputSnapshot.write(snapshot.getPath(),
+				                    fingerprint,
+				                    input.getLocationCollection(),
+				                    input.getProductCollection(),
+				                    input.getPickOrderCollection());
+			}
+
+
+			@Override
+			public Object invoke()
+					throws Exception {
+
+				return InputSnapshot.read(snapshot.getPath(), fingerprint);
+			}
+		};
+	}
+
+
+	/**
+	 * Remove all orders from a freshly loaded pick order collection, in the sequence of the collection
+	 *
+	 * @param factor scale of the dataset
+	 *
+	 * @return
+	 */
+	public static Benchmark removePickOrders(final int factor) {
+
+		return new Benchmark("pickOrderCollection.remove[x" + factor + "]") {
+			private String dataPath;
+			private int orderCount;
+			private PickOrderCollection pickOrderCollection;
+			private List<PickOrder> orders;
+
+
+			@Override
+			public int getOperationsPerInvocation() {
+
+				return orderCount;
+			}
+
+
+			@Override
+			public void setUp()
+					throws Exception {
+
+				dataPath = Datasets.scaled(factor);
+				orderCount = Input.createFromCsv(dataPath).getPickOrderCollection().count();
+			}
+
+
+			@Override
+			public void prepare()
+					throws Exception {
+
+				pickOrderCollection = Input.createFromCsv(dataPath).getPickOrderCollection();
+				orders = new ArrayList<PickOrder>(pickOrderCollection.getPickOrders());
+			}
+
+
+			@Override
+			public Object invoke() {
+
+				for(final PickOrder order : orders) {
+					pickOrderCollection.remove(order);
+				}
+				return pickOrderCollection;
+			}
+		};
+	}
+
+	// ----------------------------------------------------------------------------
+}
@@ -0,0 +1,199 @@
+package com.knapp.codingcontest.cc20160408.bench;
+
+import com.knapp.codingcontest.cc20160408.Input;
+import com.knapp.codingcontest.cc20160408.solution.Solution;
+import com.knapp.codingcontest.cc20160408.util.Scheduler;
+import com.knapp.codingcontest.cc20160408.util.SchedulerListener;
+
+/**
+ * Benchmarks for the simulation: the single steps of a tick and complete runs
+ * <p>
+ * The steps are measured within complete runs of Scheduler.run, with the times the Scheduler reports
+ * to its SchedulerListener, and reported per tick: the measurement averages over all backlog sizes of
+ * a run, the scale of the dataset determines the initial backlog. The allocation is the one of the
+ * complete run.
+ */
+public final class SchedulerBenchmarks {
+	// ----------------------------------------------------------------------------
+
+	/**
+	 * The step of a tick that is measured
+	 */
+	public enum Step {
+		getNextReplenishmentOrder,
+		refillLocations,
+		tryPickOrders,
+		handlePickedOrders
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private SchedulerBenchmarks() {
+
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * One step of a tick, measured over a complete run
+	 *
+	 * @param step   the step to measure
+	 * @param factor scale of the dataset
+	 *
+	 * @return
+	 */
+	public static Benchmark tick(final Step step, final int factor) {
+
+		return new Benchmark("scheduler.tick." + step + "[x" + factor + "]") {
+			private final StepTimes stepTimes = new StepTimes(step);
+			private String dataPath;
+			private Input input;
+
+
+			@Override
+			public int getOperationsPerInvocation() {
+
+				return Math.max(1, stepTimes.ticks);
+			}
+
+
+			@Override
+			public long getMeasuredNanos(final long invokeNanos) {
+
+				return stepTimes.nanos;
+			}
+
+
+			@Override
+			public void setUp()
+					throws Exception {
+
+				dataPath = Datasets.scaled(factor);
+			}
+
+
+			@Override
+			public void prepare()
+					throws Exception {
+
+				input = Input.createFromCsv(dataPath);
+			}
+
+
+			@Override
+			public Object invoke()
+					throws Exception {
+
+				final Solution solution = new Solution(input);
+				final Scheduler scheduler = new Scheduler(input);
+				scheduler.setListener(stepTimes);
+				return scheduler.run(solution);
+			}
+		};
+	}
+
+
+	/**
+	 * A complete Scheduler.run, including the creation of the Solution
+	 *
+	 * @param factor scale of the dataset
+	 *
+	 * @return
+	 */
+	public static Benchmark run(final int factor) {
+
+		return new Benchmark("scheduler.run[x" + factor + "]") {
+			private String dataPath;
+			private Input input;
+
+
+			@Override
+			public void setUp()
+					throws Exception {
+
+				dataPath = Datasets.scaled(factor);
+			}
+
+
+			@Override
+			public void prepare()
+					throws Exception {
+
+				input = Input.createFromCsv(dataPath);
+			}
+
+
+			@Override
+			public Object invoke()
+					throws Exception {
+
+				final Solution solution = new Solution(input);
+				return new Scheduler(input).run(solution);
+			}
+		};
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+	/**
+	 * Sums up the time of one step over the ticks of a run
+	 */
+	private static class StepTimes
+			implements SchedulerListener {
+
+		private final Step step;
+		private long nanos = 0;
+		private int ticks = 0;
+
+
+		private StepTimes(final Step step) {
+
+			this.step = step;
+		}
+
+
+		@Override
+		public void runStarted(final int orderCount, final int lineCount) {
+
+			nanos = 0;
+			ticks = 0;
+		}
+
+
+		@Override
+		public void tickCompleted(final int tick,
+		                          final long replenishmentNanos,
+		                          final long refillNanos,
+		                          final long pickNanos,
+		                          final long handlePickedNanos,
+		                          final int pickedOrders,
+		                          final int occupiedLocations,
+		                          final int openOrders) {
+
+			switch(step) {
+				case getNextReplenishmentOrder:
+					nanos += replenishmentNanos;
+					break;
+				case refillLocations:
+					nanos += refillNanos;
+					break;
+				case tryPickOrders:
+					nanos += pickNanos;
+					break;
+				default:
+					nanos += handlePickedNanos;
+					break;
+			}
+		}
+
+
+		@Override
+		public void runFinished(final int ticks) {
+
+			this.ticks = ticks;
+		}
+	}
+}
@@ -1,10 +1,14 @@
 package com.knapp.codingcontest.cc20160408;
 
+import com.knapp.codingcontest.cc20160408.data.InputSnapshot;
 import com.knapp.codingcontest.cc20160408.data.LocationCollection;
 import com.knapp.codingcontest.cc20160408.data.PickOrderCollection;
 import com.knapp.codingcontest.cc20160408.data.ProductCollection;
+import com.knapp.codingcontest.cc20160408.util.Contract;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.*;
 
 /**
  * Container class for all input into the solution
@@ -28,7 +32,7 @@ public class Input {
 
 
 	/**
-	 * Load all input data from the csv files and create instance (and composite instances)
+	 * Load all input data from the csv files in Settings.dataPath
 	 *
 	 * @return a newly created instance of the input
 	 *
@@ -37,15 +41,187 @@ public class Input {
 	public static Input createFromCsv()
 			throws Exception {
 
+		return Input.createFromCsv(Settings.dataPath);
+	}
+
+
+	/**
+	 * Load all input data from the csv files and create instance (and composite instances)
+	 * <p>
+	 * Products, locations and orders get dense ids in file order, the product codes of the
+	 * order lines are resolved to these ids.
+	 * If the snapshot in the output directory was written from these csv files it is loaded instead;
+	 * with Settings.writeInputSnapshot it is (re)written after the files have been parsed.
+	 *
+	 * @param dataPath directory with locations.csv, products.csv and pickorders.csv
+	 *
+	 * @return a newly created instance of the input
+	 *
+	 * @throws Exception
+	 */
+	public static Input createFromCsv(final String dataPath)
+			throws Exception {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(dataPath), "dataPath mandatory but is null or whitespace");
+
+		final Input input = Input.createFromSnapshot(dataPath);
+		if(input.pickOrderCollection != null) {
+			return input;
+		}
+
+		input.locationCollection = LocationCollection.createFromCsv(dataPath + File.separator + "locations.csv");
+		input.productCollection = ProductCollection.createFromCsv(dataPath + File.separator + "products.csv");
+		input.pickOrderCollection = PickOrderCollection.createFromCsv(dataPath + File.separator + "pickorders.csv",
+		                                                              input.productCollection);
+		input.writeSnapshot(dataPath);
+		return input;
+	}
+
+
+	/**
+	 * Load all input data from the csv files in Settings.dataPath concurrently
+	 *
+	 * @return a newly created instance of the input
+	 *
+	 * @throws Exception
+	 */
+	public static Input createFromCsvConcurrently()
+			throws Exception {
+
+		return Input.createFromCsvConcurrently(Settings.dataPath);
+	}
+
+
+	/**
+	 * Load all input data from the csv files like createFromCsv, but parse the files concurrently
+	 * <p>
+	 * Locations are loaded on a thread of their own while the products and then pickorders.csv, split
+	 * into one range per processor, are parsed; the collections are identical to the ones of createFromCsv.
+	 * A matching snapshot is used the same way as by createFromCsv.
+	 *
+	 * @param dataPath directory with locations.csv, products.csv and pickorders.csv
+	 *
+	 * @return a newly created instance of the input
+	 *
+	 * @throws Exception
+	 */
+	public static Input createFromCsvConcurrently(final String dataPath)
+			throws Exception {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(dataPath), "dataPath mandatory but is null or whitespace");
+
+		final Input input = Input.createFromSnapshot(dataPath);
+		if(input.pickOrderCollection != null) {
+			return input;
+		}
+
+		final int processors = Runtime.getRuntime().availableProcessors();
+		final ExecutorService executor = Executors.newFixedThreadPool(processors + 2);
+		try {
+			final Future<LocationCollection> locations = executor.submit(new Callable<LocationCollection>() {
+				@Override
+				public LocationCollection call()
+						throws Exception {
+
+					return LocationCollection.createFromCsv(dataPath + File.separator + "locations.csv");
+				}
+			});
+			// the lines are resolved to the product ids while they are parsed
+			input.productCollection = ProductCollection.createFromCsv(dataPath + File.separator + "products.csv");
+			input.pickOrderCollection = PickOrderCollection.createFromCsv(dataPath + File.separator + "pickorders.csv",
+			                                                              input.productCollection,
+			                                                              executor,
+			                                                              processors);
+			input.locationCollection = locations.get();
+			input.writeSnapshot(dataPath);
+			return input;
+		} catch(final ExecutionException e) {
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Create an independent input for another simulation run
+	 * <p>
+	 * The products, the codes and the columns of the orders and their lines are shared and only read; the
+	 * copy gets its own locations, open orders and stock, so it can be simulated concurrently with other
+	 * copies. Copies can be made concurrently as long as this input is not simulated at the same time.
+	 *
+	 * @return a newly created instance of the input
+	 */
+	public Input copy() {
+
+		final Input copy = new Input();
+		copy.locationCollection = locationCollection.copy();
+		copy.productCollection = productCollection;
+		copy.pickOrderCollection = pickOrderCollection.copy();
+		return copy;
+	}
+
+	// ............................................................................
+
+
+	private static String[] csvFilenames(final String dataPath) {
+
+		return new String[] {dataPath + File.separator + "locations.csv",
+		                     dataPath + File.separator + "products.csv",
+		                     dataPath + File.separator + "pickorders.csv"};
+	}
+
+
+	/**
+	 * @return the input loaded from the snapshot, an empty input if there is no usable snapshot
+	 */
+	private static Input createFromSnapshot(final String dataPath)
+			throws IOException {
+
 		final Input input = new Input();
-		input.locationCollection = LocationCollection.createFromCsv(Settings.dataPath + File.separator + "locations.csv");
-		input.productCollection = ProductCollection.createFromCsv(Settings.dataPath + File.separator + "products.csv");
-		input.pickOrderCollection = PickOrderCollection.createFromCsv(Settings.dataPath +
-		                                                              File.separator +
-		                                                              "pickorders.csv");
+		if(Settings.inputSnapshotFilename == null) {
+			return input;
+		}
+
+		final String snapshotFilename = Settings.outputPath + File.separator + Settings.inputSnapshotFilename;
+		final InputSnapshot snapshot = InputSnapshot.read(snapshotFilename,
+		                                                  InputSnapshot.fingerprint(Input.csvFilenames(dataPath)));
+		if(snapshot != null) {
+			input.locationCollection = snapshot.getLocationCollection();
+			input.productCollection = snapshot.getProductCollection();
+			input.pickOrderCollection = snapshot.getPickOrderCollection();
+			System.err.println(String.format("+++ loaded: snapshot with %d locations, %d products, %d orders with %d lines",
+			                                 input.locationCollection.count(),
+			                                 input.productCollection.count(),
+			                                 input.pickOrderCollection.count(),
+			                                 input.pickOrderCollection.lineCount()));
+		}
 		return input;
 	}
 
+
+	/**
+	 * Store the freshly parsed input as snapshot if requested, failing to do so only costs the speed-up of the next load
+	 */
+	private void writeSnapshot(final String dataPath) {
+
+		if((Settings.inputSnapshotFilename == null) || !Settings.writeInputSnapshot) {
+			return;
+		}
+
+		try {
+			InputSnapshot.write(Settings.outputPath + File.separator + Settings.inputSnapshotFilename,
+			                    InputSnapshot.fingerprint(Input.csvFilenames(dataPath)),
+			                    locationCollection,
+			                    productCollection,
+			                    pickOrderCollection);
+		} catch(final IOException e) {
+			System.err.println("!!! could not write input snapshot: " + e);
+		}
+	}
+
 	// ----------------------------------------------------------------------------
 
 
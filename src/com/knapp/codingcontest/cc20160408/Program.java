@@ -1,6 +1,5 @@
 package com.knapp.codingcontest.cc20160408;
 
-import com.knapp.codingcontest.cc20160408.entities.ReplenishmentOrder;
 import com.knapp.codingcontest.cc20160408.solution.Solution;
 import com.knapp.codingcontest.cc20160408.util.*;
 
@@ -8,8 +7,6 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
-import java.util.List;
-import java.util.Map;
 
 public final class Program {
 	// ----------------------------------------------------------------------------
@@ -35,22 +32,44 @@ public final class Program {
 
 			Program.writeProperties(solution, Settings.outputPath + File.separator + Settings.outPropertyFilename);
 
-			final Scheduler scheduler = new Scheduler(input.getProductCollection(),
-			                                          input.getPickOrderCollection(),
-			                                          input.getLocationCollection());
-			final List<Map.Entry<Integer, ReplenishmentOrder>> result = scheduler.run(solution);
-			ResultWriter writer = null;
+			final Scheduler scheduler = new Scheduler(input);
+			final SchedulerMetrics metrics = new SchedulerMetrics();
+			scheduler.setListener(metrics);
+			UploadArchive archive = null;
 			try {
-				writer = new ResultWriter(Settings.outputPath + File.separator + Settings.outReplenFilename);
-				writer.write(result);
+				ResultWriter writer = null;
+				try {
+					if(Settings.streamResultsIntoZip) {
+						archive = PrepareUpload.openZipFile();
+						writer = PrepareUpload.openResults(archive);
+					} else {
+						writer = new ResultWriter(Settings.outputPath + File.separator + Settings.outReplenFilename);
+					}
+					scheduler.setReplenishmentSink(writer);
+					scheduler.run(solution);
+				} finally {
+					if(writer != null) {
+						writer.close();
+					}
+				}
+				metrics.printSummary(System.err);
+				if(Settings.outMetricsFilename != null) {
+					metrics.writeCsv(Settings.outputPath + File.separator + Settings.outMetricsFilename + ".csv");
+					metrics.writeJson(Settings.outputPath + File.separator + Settings.outMetricsFilename + ".json");
+				}
+				System.err.println("### Your output stops here");
+
+				if(archive != null) {
+					PrepareUpload.finishZipFile(archive);
+				} else {
+					PrepareUpload.CreateZipFile();
+				}
 			} finally {
-				if(writer != null) {
-					writer.close();
+				// no truncated zip is left behind if the run or the upload failed
+				if(archive != null) {
+					archive.abort();
 				}
 			}
-			System.err.println("### Your output stops here");
-
-			PrepareUpload.CreateZipFile();
 			System.err.println(">>> Created " + Settings.outZipFilename);
 		} catch(final Exception e) {
 			Program.showException(e, "Exception in application code");
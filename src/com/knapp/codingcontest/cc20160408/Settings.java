@@ -2,6 +2,7 @@ package com.knapp.codingcontest.cc20160408;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.zip.Deflater;
 
 /**
  * class containing settings for the program
@@ -25,6 +26,30 @@ public final class Settings {
 	 * Name of the results file
 	 */
 	public static final String outReplenFilename = "replenishmentOrders.csv";
+	/**
+	 * Name of the binary snapshot of the input (in the output directory), null to always parse the csv files
+	 */
+	public static final String inputSnapshotFilename = "input.snapshot";
+	/**
+	 * Write the snapshot after the csv files have been parsed, so following runs can load it instead
+	 */
+	public static final boolean writeInputSnapshot = true;
+	/**
+	 * Base name of the files with the metrics of the run (&lt;name&gt;.csv and &lt;name&gt;.json), null to only print the summary
+	 */
+	public static final String outMetricsFilename = null;
+	/**
+	 * Compression level of the upload zip (0-9, -1 for the default level), 0 stores all entries uncompressed
+	 */
+	public static final int zipCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+	/**
+	 * Number of threads compressing the entries of the upload zip
+	 */
+	public static final int zipThreads = Runtime.getRuntime().availableProcessors();
+	/**
+	 * Write the results directly into the upload zip while the simulation runs, without the results file
+	 */
+	public static final boolean streamResultsIntoZip = false;
 
 	// ============================================================================
 	//
@@ -0,0 +1,526 @@
+package com.knapp.codingcontest.cc20160408.data;
+
+import com.knapp.codingcontest.cc20160408.entities.Location;
+import com.knapp.codingcontest.cc20160408.entities.PickOrderLine;
+import com.knapp.codingcontest.cc20160408.entities.Product;
+import com.knapp.codingcontest.cc20160408.util.Contract;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the loaded input, to skip parsing the csv files when the same data is used again
+ * <p>
+ * Layout (big endian), every section is prefixed with its length in bytes:
+ * <pre>
+ *   int     magic, version
+ *   long[]  fingerprint of the csv files (see fingerprint)
+ *   long    CRC-32 of the sections
+ *   section strings:   int count, per string: int length, UTF-8 bytes
+ *   section locations: int count, int[count] zone, int[count] aisle, int[count] code,
+ *                      int zones, int[zones] name, int[zones + 1] firstAisle,
+ *                      int aisles, int[aisles] code, int[aisles + 1] firstSlot, int[count] aisle, int[count] slot
+ *   section products:  int count, int[count] code, int[count] maxLocationQuantity, byte[count] fastMover
+ *   section orders:    int orders, int[orders] code,
+ *                      int lines, int[lines] orderId, int[lines] productCode, int[lines] productId, int[lines] quantity,
+ *                      int products, int[products] neededQuantity, int[products] firstLine,
+ *                      int[lines] nextLine, int[lines] previousLine
+ * </pre>
+ * All strings are stored once in the string table and referenced by their index. Besides the columns of
+ * the csv files the snapshot holds the indexes the collections derive from them, so they are loaded as
+ * arrays; the entity objects are only created when they are asked for.
+ */
+public final class InputSnapshot {
+	// ----------------------------------------------------------------------------
+
+	private static final int MAGIC = 0x4b434353;
+	private static final int VERSION = 3;
+
+	// ----------------------------------------------------------------------------
+
+	private final LocationCollection locationCollection;
+	private final ProductCollection productCollection;
+	private final PickOrderCollection pickOrderCollection;
+
+	// ----------------------------------------------------------------------------
+
+
+	private InputSnapshot(final LocationCollection locationCollection,
+	                      final ProductCollection productCollection,
+	                      final PickOrderCollection pickOrderCollection) {
+
+		this.locationCollection = locationCollection;
+		this.productCollection = productCollection;
+		this.pickOrderCollection = pickOrderCollection;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Identify the content of the source files by their path, size and modification time
+	 *
+	 * @param fullFilenames the files the snapshot is created from
+	 *
+	 * @return hash of the path, size and modification time of each file
+	 */
+	public static long[] fingerprint(final String... fullFilenames) {
+
+		final long[] fingerprint = new long[fullFilenames.length * 3];
+		for(int i = 0; i < fullFilenames.length; ++i) {
+			final File file = new File(fullFilenames[i]);
+			fingerprint[3 * i] = file.getAbsolutePath().hashCode();
+			fingerprint[(3 * i) + 1] = file.length();
+			fingerprint[(3 * i) + 2] = file.lastModified();
+		}
+		return fingerprint;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Load a snapshot
+	 *
+	 * @param fullFilename full path of the snapshot
+	 * @param fingerprint  fingerprint of the source files the snapshot has to be created from
+	 *
+	 * @return the snapshot, null if the file does not exist, has another version, was created from other files
+	 * or is damaged (the snapshot is only a cache of the csv files)
+	 *
+	 * @throws IOException if the file cannot be read
+	 */
+	public static InputSnapshot read(final String fullFilename, final long[] fingerprint)
+			throws IOException {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(fullFilename), "fullFilename mandatory but is null or whitespace");
+		Contract.requires(fingerprint != null, "fingerprint mandatory but is null");
+
+		final File file = new File(fullFilename);
+		if(!file.isFile()) {
+			return null;
+		}
+
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			final ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if((in.remaining() < 8) || (in.getInt() != InputSnapshot.MAGIC) || (in.getInt() != InputSnapshot.VERSION)) {
+				return null;
+			}
+			if(in.remaining() < (fingerprint.length * 8)) {
+				return null;
+			}
+			for(final long value : fingerprint) {
+				if(in.getLong() != value) {
+					return null;
+				}
+			}
+			if(in.remaining() < 8) {
+				return InputSnapshot.damaged(fullFilename, new EOFException("snapshot truncated"));
+			}
+			final long checksum = in.getLong();
+			final CRC32 crc = new CRC32();
+			crc.update(in.slice());
+			if(crc.getValue() != checksum) {
+				return InputSnapshot.damaged(fullFilename, new IOException("checksum mismatch"));
+			}
+
+			try {
+				final String[] strings = InputSnapshot.readStrings(InputSnapshot.section(in));
+				final LocationCollection locationCollection = InputSnapshot.readLocations(InputSnapshot.section(in), strings);
+				final ProductCollection productCollection = InputSnapshot.readProducts(InputSnapshot.section(in), strings);
+				return new InputSnapshot(locationCollection,
+				                         productCollection,
+				                         InputSnapshot.readOrders(InputSnapshot.section(in), strings, productCollection));
+			} catch(final IOException e) {
+				return InputSnapshot.damaged(fullFilename, e);
+			} catch(final BufferUnderflowException e) {
+				return InputSnapshot.damaged(fullFilename, e);
+			} catch(final IndexOutOfBoundsException e) {
+				return InputSnapshot.damaged(fullFilename, e);
+			} catch(final IllegalArgumentException e) {
+				return InputSnapshot.damaged(fullFilename, e);
+			} catch(final NegativeArraySizeException e) {
+				return InputSnapshot.damaged(fullFilename, e);
+			}
+		} finally {
+			if(channel != null) {
+				channel.close();
+			}
+		}
+	}
+
+
+	/**
+	 * Write a snapshot of freshly loaded collections
+	 * <p>
+	 * The file is written to a temporary file first and renamed, so a snapshot is either complete or missing
+	 *
+	 * @param fullFilename        full path of the snapshot, an existing file is replaced
+	 * @param fingerprint         fingerprint of the source files
+	 * @param locationCollection  the locations
+	 * @param productCollection   the products
+	 * @param pickOrderCollection the orders, all lines have to be pending and resolved to the products
+	 *
+	 * @throws IOException
+	 */
+	public static void write(final String fullFilename,
+	                         final long[] fingerprint,
+	                         final LocationCollection locationCollection,
+	                         final ProductCollection productCollection,
+	                         final PickOrderCollection pickOrderCollection)
+			throws IOException {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(fullFilename), "fullFilename mandatory but is null or whitespace");
+		Contract.requires(fingerprint != null, "fingerprint mandatory but is null");
+
+		if(!pickOrderCollection.hasProductIds() ||
+		   (pickOrderCollection.lineCount() != pickOrderCollection.getLineOrders().length)) {
+			throw new IllegalArgumentException("only freshly loaded pick orders with product ids can be written to a snapshot");
+		}
+
+		final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+		final byte[] locations = InputSnapshot.writeLocations(locationCollection, strings);
+		final byte[] products = InputSnapshot.writeProducts(productCollection, strings);
+		final byte[] lines = InputSnapshot.writeOrders(pickOrderCollection, strings);
+		final byte[] stringTable = InputSnapshot.writeStrings(strings);
+
+		final File file = new File(fullFilename);
+		final File temporaryFile = new File(fullFilename + ".tmp");
+		DataOutputStream out = null;
+		try {
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile), 1 << 16));
+			out.writeInt(InputSnapshot.MAGIC);
+			out.writeInt(InputSnapshot.VERSION);
+			for(final long value : fingerprint) {
+				out.writeLong(value);
+			}
+			final byte[][] sections = {stringTable, locations, products, lines};
+			final CRC32 crc = new CRC32();
+			for(final byte[] section : sections) {
+				crc.update(ByteBuffer.allocate(4).putInt(section.length).array());
+				crc.update(section);
+			}
+			out.writeLong(crc.getValue());
+			for(final byte[] section : sections) {
+				out.writeInt(section.length);
+				out.write(section);
+			}
+		} finally {
+			if(out != null) {
+				out.close();
+			}
+		}
+
+		if(file.exists()) {
+			file.delete();
+		}
+		if(!temporaryFile.renameTo(file)) {
+			throw new IOException("could not rename " + temporaryFile + " to " + file);
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	public LocationCollection getLocationCollection() {
+
+		return locationCollection;
+	}
+
+
+	public ProductCollection getProductCollection() {
+
+		return productCollection;
+	}
+
+
+	public PickOrderCollection getPickOrderCollection() {
+
+		return pickOrderCollection;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * A snapshot that cannot be decoded is ignored, the csv files are parsed instead
+	 *
+	 * @return null
+	 */
+	private static InputSnapshot damaged(final String fullFilename, final Exception e) {
+
+		System.err.println(String.format("!!! ignoring damaged input snapshot %s: %s", fullFilename, e));
+		return null;
+	}
+
+
+	private static ByteBuffer section(final ByteBuffer in)
+			throws IOException {
+
+		if(in.remaining() < 4) {
+			throw new EOFException("snapshot truncated");
+		}
+		final int length = in.getInt();
+		if((length < 0) || (length > in.remaining())) {
+			throw new EOFException("snapshot truncated");
+		}
+
+		final ByteBuffer section = in.slice();
+		section.limit(length);
+		in.position(in.position() + length);
+		return section;
+	}
+
+
+	private static String[] readStrings(final ByteBuffer in) {
+
+		final String[] strings = new String[in.getInt()];
+		byte[] bytes = new byte[64];
+		for(int i = 0; i < strings.length; ++i) {
+			final int length = in.getInt();
+			if(bytes.length < length) {
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			}
+			in.get(bytes, 0, length);
+			strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+
+	private static LocationCollection readLocations(final ByteBuffer in, final String[] strings) {
+
+		final int count = in.getInt();
+		final String[] zone = InputSnapshot.readStrings(in, count, strings);
+		final String[] aisle = InputSnapshot.readStrings(in, count, strings);
+		final String[] code = InputSnapshot.readStrings(in, count, strings);
+
+		final int zoneCount = in.getInt();
+		final String[] zoneNames = InputSnapshot.readStrings(in, zoneCount, strings);
+		final int[] zoneFirstAisle = InputSnapshot.readInts(in, zoneCount + 1);
+		final int aisleCount = in.getInt();
+		final String[] aisleCodes = InputSnapshot.readStrings(in, aisleCount, strings);
+		final int[] aisleFirstSlot = InputSnapshot.readInts(in, aisleCount + 1);
+		final int[] locationAisle = InputSnapshot.readInts(in, count);
+		final int[] locationSlot = InputSnapshot.readInts(in, count);
+
+		return LocationCollection.createFromColumns(zone,
+		                                            aisle,
+		                                            code,
+		                                            zoneNames,
+		                                            aisleCodes,
+		                                            zoneFirstAisle,
+		                                            aisleFirstSlot,
+		                                            locationAisle,
+		                                            locationSlot);
+	}
+
+
+	private static ProductCollection readProducts(final ByteBuffer in, final String[] strings) {
+
+		final int count = in.getInt();
+		final String[] code = InputSnapshot.readStrings(in, count, strings);
+		final int[] maxLocationQuantity = InputSnapshot.readInts(in, count);
+		final boolean[] fastMover = new boolean[count];
+		for(int i = 0; i < count; ++i) {
+			fastMover[i] = in.get() != 0;
+		}
+		return ProductCollection.createFromColumns(code, maxLocationQuantity, fastMover);
+	}
+
+
+	private static PickOrderCollection readOrders(final ByteBuffer in,
+	                                              final String[] strings,
+	                                              final ProductCollection productCollection)
+			throws IOException {
+
+		final int orderCount = in.getInt();
+		final String[] orderCode = InputSnapshot.readStrings(in, orderCount, strings);
+
+		final int lineCount = in.getInt();
+		final int[] lineOrder = InputSnapshot.readInts(in, lineCount);
+		final String[] lineProductCode = InputSnapshot.readStrings(in, lineCount, strings);
+		final int[] lineProduct = InputSnapshot.readInts(in, lineCount);
+		final int[] lineQuantity = InputSnapshot.readInts(in, lineCount);
+
+		if(in.getInt() != productCollection.count()) {
+			throw new IOException("snapshot inconsistent: number of products differs");
+		}
+		final int[] neededQuantity = InputSnapshot.readInts(in, productCollection.count());
+		final int[] firstProductLine = InputSnapshot.readInts(in, productCollection.count());
+		final int[] nextProductLine = InputSnapshot.readInts(in, lineCount);
+		final int[] previousProductLine = InputSnapshot.readInts(in, lineCount);
+
+		return PickOrderCollection.createFromColumns(productCollection,
+		                                             orderCode,
+		                                             lineOrder,
+		                                             lineProductCode,
+		                                             lineProduct,
+		                                             lineQuantity,
+		                                             neededQuantity,
+		                                             firstProductLine,
+		                                             nextProductLine,
+		                                             previousProductLine);
+	}
+
+
+	/**
+	 * @return the strings referenced by the next count indexes
+	 */
+	private static String[] readStrings(final ByteBuffer in, final int count, final String[] strings) {
+
+		final String[] values = new String[count];
+		for(int i = 0; i < count; ++i) {
+			values[i] = strings[in.getInt()];
+		}
+		return values;
+	}
+
+
+	private static int[] readInts(final ByteBuffer in, final int count) {
+
+		final int[] values = new int[count];
+		in.asIntBuffer().get(values);
+		in.position(in.position() + (count * 4));
+		return values;
+	}
+
+	// ............................................................................
+
+
+	private static byte[] writeStrings(final Map<String, Integer> strings)
+			throws IOException {
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(strings.size());
+		for(final String string : strings.keySet()) {
+			final byte[] encoded = string.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(encoded.length);
+			out.write(encoded);
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+
+	private static byte[] writeLocations(final LocationCollection locationCollection, final Map<String, Integer> strings)
+			throws IOException {
+
+		final int count = locationCollection.count();
+		final int[] zone = new int[count];
+		final int[] aisle = new int[count];
+		final int[] code = new int[count];
+		int i = 0;
+		for(final Location location : locationCollection.getLocations()) {
+			zone[i] = InputSnapshot.intern(strings, location.getZone());
+			aisle[i] = InputSnapshot.intern(strings, location.getAisle());
+			code[i] = InputSnapshot.intern(strings, location.getCode());
+			++i;
+		}
+		final int[] zoneName = new int[locationCollection.zoneCount()];
+		for(int z = 0; z < zoneName.length; ++z) {
+			zoneName[z] = InputSnapshot.intern(strings, locationCollection.getZoneName(z));
+		}
+		final int[] aisleCode = new int[locationCollection.aisleCount()];
+		for(int a = 0; a < aisleCode.length; ++a) {
+			aisleCode[a] = InputSnapshot.intern(strings, locationCollection.getAisleCode(a));
+		}
+
+		final ByteBuffer out = ByteBuffer.allocate(4 * (5 + (count * 5) + (zoneName.length * 2) + (aisleCode.length * 2)));
+		out.putInt(count);
+		InputSnapshot.writeInts(out, zone);
+		InputSnapshot.writeInts(out, aisle);
+		InputSnapshot.writeInts(out, code);
+		out.putInt(zoneName.length);
+		InputSnapshot.writeInts(out, zoneName);
+		InputSnapshot.writeInts(out, locationCollection.getZoneFirstAisles());
+		out.putInt(aisleCode.length);
+		InputSnapshot.writeInts(out, aisleCode);
+		InputSnapshot.writeInts(out, locationCollection.getAisleFirstSlots());
+		InputSnapshot.writeInts(out, locationCollection.getLocationAisles());
+		InputSnapshot.writeInts(out, locationCollection.getLocationSlots());
+		return out.array();
+	}
+
+
+	private static byte[] writeProducts(final ProductCollection productCollection, final Map<String, Integer> strings)
+			throws IOException {
+
+		final int count = productCollection.count();
+		final ByteBuffer out = ByteBuffer.allocate(4 + (count * 9));
+		out.putInt(count);
+		for(final Product product : productCollection.getProducts()) {
+			out.putInt(InputSnapshot.intern(strings, product.getCode()));
+		}
+		for(final Product product : productCollection.getProducts()) {
+			out.putInt(product.getMaxLocationQuantity());
+		}
+		for(final Product product : productCollection.getProducts()) {
+			out.put((byte) (product.isFastMover() ? 1 : 0));
+		}
+		return out.array();
+	}
+
+
+	private static byte[] writeOrders(final PickOrderCollection pickOrderCollection, final Map<String, Integer> strings)
+			throws IOException {
+
+		final int[] orderCode = new int[pickOrderCollection.idCount()];
+		for(int orderId = 0; orderId < orderCode.length; ++orderId) {
+			orderCode[orderId] = InputSnapshot.intern(strings, pickOrderCollection.getPickOrder(orderId).getOrderId());
+		}
+		final List<PickOrderLine> lines = pickOrderCollection.getPickOrderLines();
+		final int[] productCode = new int[lines.size()];
+		int i = 0;
+		for(final PickOrderLine line : lines) {
+			productCode[i++] = InputSnapshot.intern(strings, line.getProductCode());
+		}
+		final int[] neededQuantity = pickOrderCollection.getNeededQuantities();
+
+		final ByteBuffer out = ByteBuffer.allocate(4 * (3 + orderCode.length + (productCode.length * 6) +
+		                                                (neededQuantity.length * 2)));
+		out.putInt(orderCode.length);
+		InputSnapshot.writeInts(out, orderCode);
+		out.putInt(productCode.length);
+		InputSnapshot.writeInts(out, pickOrderCollection.getLineOrders());
+		InputSnapshot.writeInts(out, productCode);
+		InputSnapshot.writeInts(out, pickOrderCollection.getLineProducts());
+		InputSnapshot.writeInts(out, pickOrderCollection.getLineQuantities());
+		out.putInt(neededQuantity.length);
+		InputSnapshot.writeInts(out, neededQuantity);
+		InputSnapshot.writeInts(out, pickOrderCollection.getFirstProductLines());
+		InputSnapshot.writeInts(out, pickOrderCollection.getNextProductLines());
+		InputSnapshot.writeInts(out, pickOrderCollection.getPreviousProductLines());
+		return out.array();
+	}
+
+
+	private static void writeInts(final ByteBuffer out, final int[] values) {
+
+		out.asIntBuffer().put(values);
+		out.position(out.position() + (values.length * 4));
+	}
+
+
+	private static int intern(final Map<String, Integer> strings, final String string) {
+
+		Integer index = strings.get(string);
+		if(index == null) {
+			index = strings.size();
+			strings.put(string, index);
+		}
+		return index;
+	}
+
+	// ----------------------------------------------------------------------------
+}
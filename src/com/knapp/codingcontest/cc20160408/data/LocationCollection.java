@@ -4,19 +4,67 @@ import com.knapp.codingcontest.cc20160408.entities.Location;
 import com.knapp.codingcontest.cc20160408.util.Contract;
 import com.knapp.codingcontest.cc20160408.util.CsvReader;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
 public class LocationCollection {
 
 	private final Map<String, Location> locations = new LinkedHashMap<String, Location>();
+	private final List<Location> locationsById = new ArrayList<Location>();
+
+	/**
+	 * columns of a collection loaded from an InputSnapshot: the Location objects are created from them
+	 * on first use, the columns are null afterwards
+	 */
+	private String[] locationZones = null;
+	private String[] locationAisles;
+	private String[] locationCodes;
+
+	/**
+	 * ids of all locations without an assigned product (file order)
+	 */
+	private final BitSet freeLocations = new BitSet();
+	private int freeCount = 0;
+
+	/**
+	 * the same free locations by slot: the grid of all locations ordered by zone, aisle and id, so that
+	 * the free locations near an aisle are neighbouring bits
+	 * <p>
+	 * Zones and aisles get dense indices in the sequence they appear in the file, the aisles of a zone
+	 * are numbered consecutively and the slots of an aisle are consecutive. Only the free slots change
+	 * after loading, the grid is shared with the copies.
+	 */
+	private final BitSet freeSlots = new BitSet();
+	private Map<String, Integer> aisleIndex = new HashMap<String, Integer>();
+	private List<String> zoneNames = new ArrayList<String>();
+	private List<String> aisleCodes = new ArrayList<String>();
+	private int[] slotLocation;
+	private int[] locationSlot;
+	private int[] locationAisle;
+	private int[] aisleFirstSlot;
+	private int[] aisleZone;
+	private int[] zoneFirstAisle;
+
+	/**
+	 * number of locations with an assigned product per aisle index
+	 */
+	private int[] aisleOccupied;
+
+	/**
+	 * locations per assigned product id, doubly linked over the location ids and -1 terminated;
+	 * locationProduct is the product id registered for each location (-1 for none)
+	 */
+	private int[] locationProduct;
+	private int[] firstProductLocation = new int[0];
+	private int[] nextProductLocation;
+	private int[] previousProductLocation;
 
 	// ----------------------------------------------------------------------------
 
 
-	private LocationCollection() {
+	/**
+	 * A location collection can only be created using CreateFromCsv or from an InputSnapshot
+	 */
+	LocationCollection() {
 
 	}
 
@@ -39,25 +87,236 @@ public class LocationCollection {
 
 		final LocationCollection locationCollection = new LocationCollection();
 
-		for(final Location location : CsvReader.readCsvFile(fullFilename, Location.class)) {
-			locationCollection.add(location);
-		}
+		CsvReader.read(fullFilename, new CsvReader.RecordHandler() {
+			@Override
+			public void handle(final CsvReader.Record record) {
+
+				locationCollection.add(new Location(record.getString(0), record.getString(1), record.getString(2)));
+			}
+		});
+		locationCollection.prepareGrid();
 		System.err.println(String.format("+++ loaded: %d products", locationCollection.count()));
 
 		return locationCollection;
 	}
 
+
+	/**
+	 * Create a collection of free locations from the columns of an InputSnapshot, including the grid
+	 * of a collection that had been prepared from the same locations
+	 *
+	 * @param zones          zone per location
+	 * @param aisles         aisle per location
+	 * @param codes          code per location
+	 * @param zoneNames      name per zone index
+	 * @param aisleCodes     code per aisle index
+	 * @param zoneFirstAisle first aisle index per zone index, followed by the number of aisles
+	 * @param aisleFirstSlot first slot per aisle index, followed by the number of locations
+	 * @param locationAisle  aisle index per location
+	 * @param locationSlot   slot per location
+	 *
+	 * @return newly created instance
+	 */
+	static LocationCollection createFromColumns(final String[] zones,
+	                                            final String[] aisles,
+	                                            final String[] codes,
+	                                            final String[] zoneNames,
+	                                            final String[] aisleCodes,
+	                                            final int[] zoneFirstAisle,
+	                                            final int[] aisleFirstSlot,
+	                                            final int[] locationAisle,
+	                                            final int[] locationSlot) {
+
+		final LocationCollection locationCollection = new LocationCollection();
+		locationCollection.locationZones = zones;
+		locationCollection.locationAisles = aisles;
+		locationCollection.locationCodes = codes;
+
+		locationCollection.zoneNames.addAll(Arrays.asList(zoneNames));
+		for(final String aisle : aisleCodes) {
+			if(!locationCollection.aisleIndex.containsKey(aisle)) {
+				locationCollection.aisleIndex.put(aisle, locationCollection.aisleCodes.size());
+			}
+			locationCollection.aisleCodes.add(aisle);
+		}
+		locationCollection.zoneFirstAisle = zoneFirstAisle;
+		locationCollection.aisleZone = new int[aisleCodes.length];
+		for(int zone = 0; zone < zoneNames.length; ++zone) {
+			Arrays.fill(locationCollection.aisleZone, zoneFirstAisle[zone], zoneFirstAisle[zone + 1], zone);
+		}
+		locationCollection.aisleFirstSlot = aisleFirstSlot;
+		locationCollection.locationAisle = locationAisle;
+		locationCollection.locationSlot = locationSlot;
+		locationCollection.slotLocation = new int[codes.length];
+		for(int id = 0; id < codes.length; ++id) {
+			locationCollection.slotLocation[locationSlot[id]] = id;
+		}
+
+		locationCollection.prepareOccupancy();
+		return locationCollection;
+	}
+
+
+	/**
+	 * Create an independent copy with new Location objects holding the same stock
+	 * <p>
+	 * The codes and the grid are shared, the assigned products are the same instances. Nothing of this
+	 * collection is changed (the Location objects of a collection loaded from an InputSnapshot are not
+	 * created either), so copies can be made concurrently as long as this collection is not changed at
+	 * the same time.
+	 *
+	 * @return a newly created collection
+	 */
+	public LocationCollection copy() {
+
+		final LocationCollection copy = new LocationCollection();
+		copy.zoneNames = zoneNames;
+		copy.aisleCodes = aisleCodes;
+		copy.aisleIndex = aisleIndex;
+		copy.zoneFirstAisle = zoneFirstAisle;
+		copy.aisleZone = aisleZone;
+		copy.aisleFirstSlot = aisleFirstSlot;
+		copy.locationAisle = locationAisle;
+		copy.locationSlot = locationSlot;
+		copy.slotLocation = slotLocation;
+		copy.prepareOccupancy();
+
+		if(locationCodes != null) {
+			// no Location objects yet, so no location has a product: the copy creates its own on first use
+			copy.locationZones = locationZones;
+			copy.locationAisles = locationAisles;
+			copy.locationCodes = locationCodes;
+			return copy;
+		}
+
+		for(final Location location : locationsById) {
+			final Location locationCopy = new Location(location.getZone(), location.getAisle(), location.getCode());
+			locationCopy.setAssignedProduct(location.getAssignedProduct());
+			locationCopy.setQuantityOnHand(location.getQuantityOnHand());
+			locationCopy.setZoneIndex(location.getZoneIndex());
+			locationCopy.setAisleIndex(location.getAisleIndex());
+			copy.add(locationCopy);
+			copy.updateOccupancy(locationCopy);
+		}
+		return copy;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
 	/**
-	 * Add a location to the collection
+	 * Add a location to the collection, a location with the same code is replaced and its id reused
 	 *
 	 * @param location
 	 */
-	private void add(final Location location) {
+	void add(final Location location) {
+
+		final Location previous = locations.put(location.getCode(), location);
+		if(previous != null) {
+			// a code listed twice keeps its id, the last row wins
+			location.setId(previous.getId());
+			locationsById.set(previous.getId(), location);
+		} else {
+			location.setId(locationsById.size());
+			locationsById.add(location);
+		}
+	}
+
+
+	/**
+	 * Index the zones and aisles, order the locations into the grid and register their occupancy
+	 * only called initially, after all locations have been added
+	 */
+	void prepareGrid() {
+
+		final int count = locationsById.size();
+
+		// zones and the aisles within each zone by first appearance
+		final Map<String, Integer> zoneIndex = new HashMap<String, Integer>();
+		final List<Map<String, Integer>> zoneAisles = new ArrayList<Map<String, Integer>>();
+		final List<List<String>> zoneAisleCodes = new ArrayList<List<String>>();
+		final int[] locationZone = new int[count];
+		final int[] localAisle = new int[count];
+		for(final Location location : locationsById) {
+			Integer zone = zoneIndex.get(location.getZone());
+			if(zone == null) {
+				zone = zoneIndex.size();
+				zoneIndex.put(location.getZone(), zone);
+				zoneNames.add(location.getZone());
+				zoneAisles.add(new HashMap<String, Integer>());
+				zoneAisleCodes.add(new ArrayList<String>());
+			}
+			Integer aisle = zoneAisles.get(zone).get(location.getAisle());
+			if(aisle == null) {
+				aisle = zoneAisles.get(zone).size();
+				zoneAisles.get(zone).put(location.getAisle(), aisle);
+				zoneAisleCodes.get(zone).add(location.getAisle());
+			}
+			locationZone[location.getId()] = zone;
+			localAisle[location.getId()] = aisle;
+		}
+
+		zoneFirstAisle = new int[zoneNames.size() + 1];
+		for(int zone = 0; zone < zoneNames.size(); ++zone) {
+			zoneFirstAisle[zone + 1] = zoneFirstAisle[zone] + zoneAisleCodes.get(zone).size();
+			for(final String aisle : zoneAisleCodes.get(zone)) {
+				if(!aisleIndex.containsKey(aisle)) {
+					aisleIndex.put(aisle, aisleCodes.size());
+				}
+				aisleCodes.add(aisle);
+			}
+		}
+		aisleZone = new int[aisleCodes.size()];
+		for(int zone = 0; zone < zoneNames.size(); ++zone) {
+			Arrays.fill(aisleZone, zoneFirstAisle[zone], zoneFirstAisle[zone + 1], zone);
+		}
+
+		locationAisle = new int[count];
+		final int[] aisleCounts = new int[aisleCodes.size()];
+		for(final Location location : locationsById) {
+			final int aisle = zoneFirstAisle[locationZone[location.getId()]] + localAisle[location.getId()];
+			locationAisle[location.getId()] = aisle;
+			location.setZoneIndex(locationZone[location.getId()]);
+			location.setAisleIndex(aisle);
+			aisleCounts[aisle]++;
+		}
+
+		aisleFirstSlot = new int[aisleCodes.size() + 1];
+		for(int aisle = 0; aisle < aisleCodes.size(); ++aisle) {
+			aisleFirstSlot[aisle + 1] = aisleFirstSlot[aisle] + aisleCounts[aisle];
+		}
+
+		slotLocation = new int[count];
+		locationSlot = new int[count];
+		final int[] fill = Arrays.copyOf(aisleFirstSlot, aisleCodes.size());
+		for(final Location location : locationsById) {
+			final int slot = fill[locationAisle[location.getId()]]++;
+			slotLocation[slot] = location.getId();
+			locationSlot[location.getId()] = slot;
+		}
+
+		// start with all locations free and register the assigned ones
+		prepareOccupancy();
+		for(final Location location : locationsById) {
+			updateOccupancy(location);
+		}
+	}
+
 
-		locations.put(location.getCode(), location);
+	/**
+	 * Register all locations as free
+	 */
+	private void prepareOccupancy() {
+
+		final int count = locationAisle.length;
+		aisleOccupied = new int[aisleCodes.size()];
+		locationProduct = new int[count];
+		nextProductLocation = new int[count];
+		previousProductLocation = new int[count];
+		Arrays.fill(locationProduct, -1);
+		freeLocations.set(0, count);
+		freeSlots.set(0, count);
+		freeCount = count;
 	}
 
 
@@ -68,7 +327,7 @@ public class LocationCollection {
 	 */
 	public final int count() {
 
-		return locations.size();
+		return (locationCodes != null) ? locationCodes.length : locationsById.size();
 	}
 
 	// ----------------------------------------------------------------------------
@@ -85,6 +344,7 @@ public class LocationCollection {
 
 		Contract.requires(code != null, "code must not be <null>");
 
+		createLocations();
 		if(locations.containsKey(code)) {
 			return locations.get(code);
 		}
@@ -92,6 +352,432 @@ public class LocationCollection {
 		return null;
 	}
 
+
+	/**
+	 * Get the location with the given (dense) id
+	 *
+	 * @param id id assigned while loading, 0..count-1
+	 *
+	 * @return the location
+	 */
+	public Location getLocation(final int id) {
+
+		return locationsById().get(id);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Register a change of the assigned product of a location with the free location pool
+	 * <p>
+	 * Has to be called whenever a product is assigned to a location or a location is emptied
+	 *
+	 * @param location the location that has changed
+	 */
+	public void updateOccupancy(final Location location) {
+
+		Contract.requires(location != null, "location must not be <null>");
+
+		final int id = location.getId();
+		final boolean free = location.getAssignedProduct() == null;
+		if(free != freeSlots.get(locationSlot[id])) {
+			aisleOccupied[locationAisle[id]] += free ? -1 : 1;
+			freeCount += free ? 1 : -1;
+		}
+		freeLocations.set(id, free);
+		freeSlots.set(locationSlot[id], free);
+
+		final int productId = free ? -1 : location.getAssignedProduct().getId();
+		if(productId != locationProduct[id]) {
+			unlinkProductLocation(id);
+			linkProductLocation(id, productId);
+		}
+	}
+
+
+	/**
+	 * Get the number of locations without an assigned product
+	 *
+	 * @return
+	 */
+	public int freeCount() {
+
+		return freeCount;
+	}
+
+
+	/**
+	 * Get the first location (in file order) without an assigned product
+	 *
+	 * @return the free location, null if all locations are occupied
+	 */
+	public Location findFirstFree() {
+
+		final int id = freeLocations.nextSetBit(0);
+		return (id >= 0) ? locationsById().get(id) : null;
+	}
+
+
+	/**
+	 * Get the first free location with an id of at least fromId
+	 *
+	 * @param fromId id to start the search at
+	 *
+	 * @return the free location, null if there is none
+	 */
+	public Location findNextFree(final int fromId) {
+
+		Contract.requires(fromId >= 0, "fromId must not be negative");
+
+		final int id = freeLocations.nextSetBit(fromId);
+		return (id >= 0) ? locationsById().get(id) : null;
+	}
+
+
+	/**
+	 * Get a free location in the given aisle or, if there is none, in the nearest aisle
+	 * <p>
+	 * Aisles are numbered in the sequence they appear in the file, when two aisles are
+	 * equally near, the one that appears first is used
+	 *
+	 * @param aisle code of the aisle
+	 *
+	 * @return the free location, null if all locations are occupied or the aisle is unknown
+	 */
+	public Location findFreeNearAisle(final String aisle) {
+
+		Contract.requires(aisle != null, "aisle must not be <null>");
+
+		final Integer index = aisleIndex.get(aisle);
+		if(index == null) {
+			return null;
+		}
+
+		final int firstSlot = aisleFirstSlot[index];
+		final int after = freeSlots.nextSetBit(firstSlot);
+		final int before = (firstSlot > 0) ? freeSlots.previousSetBit(firstSlot - 1) : -1;
+		if(before < 0) {
+			return (after >= 0) ? locationsById().get(slotLocation[after]) : null;
+		}
+		if(after < 0) {
+			return locationsById().get(slotLocation[before]);
+		}
+
+		final int distanceAfter = locationAisle[slotLocation[after]] - index;
+		final int distanceBefore = index - locationAisle[slotLocation[before]];
+		return locationsById().get(slotLocation[(distanceAfter < distanceBefore) ? after : before]);
+	}
+
+	// ----------------------------------------------------------------------------
+	// the grid: zones, aisles and slots by dense index
+
+
+	public int zoneCount() {
+
+		return zoneNames.size();
+	}
+
+
+	public String getZoneName(final int zone) {
+
+		return zoneNames.get(zone);
+	}
+
+
+	/**
+	 * The aisles of a zone are the indices getFirstAisleOfZone(zone) .. getFirstAisleOfZone(zone + 1) - 1
+	 *
+	 * @param zone index of the zone, zoneCount() for the end of the last zone
+	 */
+	public int getFirstAisleOfZone(final int zone) {
+
+		return zoneFirstAisle[zone];
+	}
+
+
+	public int aisleCount() {
+
+		return aisleCodes.size();
+	}
+
+
+	public String getAisleCode(final int aisle) {
+
+		return aisleCodes.get(aisle);
+	}
+
+
+	public int getZoneOfAisle(final int aisle) {
+
+		return aisleZone[aisle];
+	}
+
+
+	/**
+	 * @param aisle index of the aisle
+	 *
+	 * @return number of locations in the aisle
+	 */
+	public int getAisleSize(final int aisle) {
+
+		return aisleFirstSlot[aisle + 1] - aisleFirstSlot[aisle];
+	}
+
+
+	/**
+	 * @param aisle index of the aisle
+	 * @param slot  0..getAisleSize(aisle)-1
+	 *
+	 * @return the location at the slot
+	 */
+	public Location getLocation(final int aisle, final int slot) {
+
+		Contract.requires((slot >= 0) && (slot < getAisleSize(aisle)), "slot out of range");
+
+		return locationsById().get(slotLocation[aisleFirstSlot[aisle] + slot]);
+	}
+
+
+	/**
+	 * @param location a location of this collection
+	 *
+	 * @return the slot of the location within its aisle
+	 */
+	public int getSlot(final Location location) {
+
+		return locationSlot[location.getId()] - aisleFirstSlot[locationAisle[location.getId()]];
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * @param aisle index of the aisle
+	 *
+	 * @return number of locations without an assigned product in the aisle
+	 */
+	public int getFreeCountInAisle(final int aisle) {
+
+		return getAisleSize(aisle) - aisleOccupied[aisle];
+	}
+
+
+	/**
+	 * Get the first free location (by slot) of an aisle
+	 *
+	 * @param aisle index of the aisle
+	 *
+	 * @return the free location, null if the aisle is full
+	 */
+	public Location findFreeInAisle(final int aisle) {
+
+		final int slot = freeSlots.nextSetBit(aisleFirstSlot[aisle]);
+		return ((slot >= 0) && (slot < aisleFirstSlot[aisle + 1])) ? locationsById().get(slotLocation[slot]) : null;
+	}
+
+
+	/**
+	 * Get all free locations of an aisle
+	 *
+	 * @param aisle index of the aisle
+	 *
+	 * @return the free locations by slot
+	 */
+	public List<Location> getFreeLocationsInAisle(final int aisle) {
+
+		final List<Location> free = new ArrayList<Location>(getFreeCountInAisle(aisle));
+		for(int slot = freeSlots.nextSetBit(aisleFirstSlot[aisle]);
+		    (slot >= 0) && (slot < aisleFirstSlot[aisle + 1]);
+		    slot = freeSlots.nextSetBit(slot + 1)) {
+			free.add(locationsById().get(slotLocation[slot]));
+		}
+		return free;
+	}
+
+
+	/**
+	 * Get the locations assigned to a product
+	 *
+	 * @param productId id of the product
+	 *
+	 * @return the locations, the most recently assigned first
+	 */
+	public List<Location> getLocationsOfProduct(final int productId) {
+
+		final List<Location> result = new ArrayList<Location>();
+		if((productId >= 0) && (productId < firstProductLocation.length)) {
+			for(int id = firstProductLocation[productId]; id >= 0; id = nextProductLocation[id]) {
+				result.add(locationsById().get(id));
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Get the aisles that have a location assigned to the product
+	 *
+	 * @param productId id of the product
+	 *
+	 * @return the indices of the aisles, ascending
+	 */
+	public int[] getAislesHoldingProduct(final int productId) {
+
+		if((productId < 0) || (productId >= firstProductLocation.length)) {
+			return new int[0];
+		}
+
+		final BitSet aisles = new BitSet(aisleCodes.size());
+		for(int id = firstProductLocation[productId]; id >= 0; id = nextProductLocation[id]) {
+			aisles.set(locationAisle[id]);
+		}
+
+		final int[] result = new int[aisles.cardinality()];
+		int i = 0;
+		for(int aisle = aisles.nextSetBit(0); aisle >= 0; aisle = aisles.nextSetBit(aisle + 1)) {
+			result[i++] = aisle;
+		}
+		return result;
+	}
+
+
+	/**
+	 * Get the aisle with the lowest share of occupied locations that still has a free location
+	 * <p>
+	 * Ties are resolved by the lower aisle index; takes time proportional to the number of aisles
+	 *
+	 * @return index of the aisle, -1 if all locations are occupied
+	 */
+	public int findLeastLoadedAisle() {
+
+		return findLeastLoadedAisle(0, aisleCodes.size());
+	}
+
+
+	/**
+	 * Get the aisle of the zone with the lowest share of occupied locations that still has a free location
+	 *
+	 * @param zone index of the zone
+	 *
+	 * @return index of the aisle, -1 if all locations of the zone are occupied
+	 */
+	public int findLeastLoadedAisle(final int zone) {
+
+		return findLeastLoadedAisle(zoneFirstAisle[zone], zoneFirstAisle[zone + 1]);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private int findLeastLoadedAisle(final int fromAisle, final int toAisle) {
+
+		int best = -1;
+		for(int aisle = fromAisle; aisle < toAisle; ++aisle) {
+			if(aisleOccupied[aisle] == getAisleSize(aisle)) {
+				continue;
+			}
+			// occupied / size compared without division
+			if((best < 0) ||
+			   (((long) aisleOccupied[aisle] * getAisleSize(best)) < ((long) aisleOccupied[best] * getAisleSize(aisle)))) {
+				best = aisle;
+			}
+		}
+		return best;
+	}
+
+
+	private void linkProductLocation(final int id, final int productId) {
+
+		locationProduct[id] = productId;
+		if(productId < 0) {
+			return;
+		}
+		if(productId >= firstProductLocation.length) {
+			final int oldLength = firstProductLocation.length;
+			firstProductLocation = Arrays.copyOf(firstProductLocation, Math.max(productId + 1, oldLength * 2));
+			Arrays.fill(firstProductLocation, oldLength, firstProductLocation.length, -1);
+		}
+		previousProductLocation[id] = -1;
+		nextProductLocation[id] = firstProductLocation[productId];
+		if(firstProductLocation[productId] >= 0) {
+			previousProductLocation[firstProductLocation[productId]] = id;
+		}
+		firstProductLocation[productId] = id;
+	}
+
+
+	private void unlinkProductLocation(final int id) {
+
+		final int productId = locationProduct[id];
+		if(productId < 0) {
+			return;
+		}
+		if(previousProductLocation[id] >= 0) {
+			nextProductLocation[previousProductLocation[id]] = nextProductLocation[id];
+		} else {
+			firstProductLocation[productId] = nextProductLocation[id];
+		}
+		if(nextProductLocation[id] >= 0) {
+			previousProductLocation[nextProductLocation[id]] = previousProductLocation[id];
+		}
+		locationProduct[id] = -1;
+	}
+
+
+	/**
+	 * The Location objects by id, created first if the collection was loaded from an InputSnapshot
+	 */
+	private List<Location> locationsById() {
+
+		createLocations();
+		return locationsById;
+	}
+
+
+	private void createLocations() {
+
+		if(locationCodes == null) {
+			return;
+		}
+		for(int id = 0; id < locationCodes.length; ++id) {
+			final Location location = new Location(locationZones[id], locationAisles[id], locationCodes[id]);
+			add(location);
+			location.setZoneIndex(aisleZone[locationAisle[id]]);
+			location.setAisleIndex(locationAisle[id]);
+		}
+		locationZones = null;
+		locationAisles = null;
+		locationCodes = null;
+	}
+
+	// ----------------------------------------------------------------------------
+	// grid arrays for the InputSnapshot - shared and must not be modified
+
+
+	int[] getZoneFirstAisles() {
+
+		return zoneFirstAisle;
+	}
+
+
+	int[] getAisleFirstSlots() {
+
+		return aisleFirstSlot;
+	}
+
+
+	int[] getLocationAisles() {
+
+		return locationAisle;
+	}
+
+
+	int[] getLocationSlots() {
+
+		return locationSlot;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -100,6 +786,7 @@ public class LocationCollection {
 	 */
 	public Collection<Location> getLocations() {
 
+		createLocations();
 		return Collections.unmodifiableCollection(locations.values());
 	}
 
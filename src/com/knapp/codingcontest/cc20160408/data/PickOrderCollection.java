@@ -2,30 +2,115 @@ package com.knapp.codingcontest.cc20160408.data;
 
 import com.knapp.codingcontest.cc20160408.entities.PickOrder;
 import com.knapp.codingcontest.cc20160408.entities.PickOrderLine;
+import com.knapp.codingcontest.cc20160408.entities.Product;
 import com.knapp.codingcontest.cc20160408.util.Contract;
 import com.knapp.codingcontest.cc20160408.util.CsvReader;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class PickOrderCollection {
 
 	private final Map<String, PickOrder> orders = new LinkedHashMap<String, PickOrder>();
-	private final List<PickOrderLine> orderLines = new ArrayList<PickOrderLine>();
-	private final Map<String, int[]> cacheNeededQuantity = new HashMap<String, int[]>();
+
+	/**
+	 * all orders as read from the csv, indexed by their id - removed orders are kept; shared with the copies
+	 */
+	private List<PickOrder> ordersById = new ArrayList<PickOrder>();
+
+	/**
+	 * all lines as read from the csv, in file order - lines of removed orders are kept; shared with the copies
+	 */
+	private List<PickOrderLine> orderLines = new ArrayList<PickOrderLine>();
+
+	/**
+	 * columns of a collection loaded from an InputSnapshot: the PickOrder and PickOrderLine objects are
+	 * created from them on first use, the columns are null afterwards
+	 */
+	private String[] orderCodes = null;
+	private String[] lineProductCodes;
+
+	/**
+	 * number of orders that have not been removed
+	 */
+	private int openOrderCount;
+
+	/**
+	 * bitset of the ids of the open orders and a Fenwick tree over the number of open orders per word,
+	 * so the n-th open order is found in O(log(orders / 64))
+	 */
+	private long[] openOrderWords;
+	private int[] openOrderTree;
+
+	/**
+	 * order id, product id and quantity per line position
+	 */
+	private int[] lineOrder;
+	private int[] lineProduct;
+	private int[] lineQuantity;
+
+	/**
+	 * positions (in orderLines) of the lines of each order, indexed by order id
+	 */
+	private int[][] orderLinePositions;
+
+	/**
+	 * doubly linked list over the positions of the pending lines, the sentinel is at orderLines.size()
+	 */
+	private int[] nextLine;
+	private int[] previousLine;
+	private int pendingLineCount;
+
+	private final PendingLines pendingLines = new PendingLines();
+
+	/**
+	 * the order of the line added last while loading
+	 */
+	private PickOrder loadingOrder = null;
+
+	/**
+	 * the collection the product codes of the lines have been resolved against, null if the collection
+	 * was loaded without products (then every line has the product id -1)
+	 */
+	private ProductCollection productCollection;
+
+	/**
+	 * quantity needed by all still open orders, indexed by product id
+	 */
+	private int[] neededQuantity;
+
+	/**
+	 * quantity needed by all still open orders for the product codes without an id
+	 */
+	private final Map<String, int[]> neededQuantityByCode = new HashMap<String, int[]>();
+
+	/**
+	 * posting lists of the open lines per product id, doubly linked over the line positions and sorted by
+	 * order id (the sequence of the orders), -1 terminated
+	 */
+	private int[] firstProductLine;
+	private int[] nextProductLine;
+	private int[] previousProductLine;
 
 	// ----------------------------------------------------------------------------
 
 
 	/**
-	 * PickOrderCollection can only be created via creatFromCsv
+	 * PickOrderCollection can only be created via creatFromCsv or from an InputSnapshot
 	 */
-	private PickOrderCollection() {
+	PickOrderCollection() {
 
 	}
 
 
 	/**
 	 * load the PickOrders from the csv and create the objects
+	 * <p>
+	 * The lines get no product ids: only the queries by product code are available, the ones by product
+	 * id throw an IllegalStateException. Use createFromCsv(String, ProductCollection) for a collection
+	 * the Scheduler and the Solution can work with.
 	 *
 	 * @param fullFilename full path of the csv
 	 *
@@ -36,31 +121,111 @@ public class PickOrderCollection {
 	public static PickOrderCollection createFromCsv(final String fullFilename)
 			throws Exception {
 
+		return PickOrderCollection.createFromCsv(fullFilename, (ProductCollection) null);
+	}
+
+
+	/**
+	 * load the PickOrders from the csv and create the objects, resolving the product codes of the lines
+	 * to the ids of the given products
+	 * <p>
+	 * Lines with a product unknown to the collection get the product id -1
+	 *
+	 * @param fullFilename      full path of the csv
+	 * @param productCollection all products of the day, null to load without product ids
+	 *
+	 * @return new PickOrderCollection with all PickOrders and their PickOrderLines from the csv
+	 *
+	 * @throws Exception
+	 */
+	public static PickOrderCollection createFromCsv(final String fullFilename, final ProductCollection productCollection)
+			throws Exception {
+
 		Contract.requires(!Contract.isNullOrWhiteSpace(fullFilename), "filename mandatory but is null or whitespace only");
 
 		final PickOrderCollection orderCollection = new PickOrderCollection();
 
-		int lineCount = 0;
-		for(final PickOrderLine pol : CsvReader.readCsvFile(fullFilename, PickOrderLine.class)) {
-			++lineCount;
-			final PickOrder order;
-			if(orderCollection.orders.containsKey(pol.getOrderId())) {
-				order = orderCollection.orders.get(pol.getOrderId());
-				if(order == null) {
-					throw new IllegalArgumentException("order not found: " + pol.getOrderId());
-				}
-			} else {
-				order = new PickOrder(pol.getOrderId());
-				orderCollection.orders.put(order.getOrderId(), order);
+		final LineParser parser = new LineParser(productCollection);
+		CsvReader.read(fullFilename, new CsvReader.RecordHandler() {
+			@Override
+			public void handle(final CsvReader.Record record) {
+
+				orderCollection.add(parser.parse(record));
 			}
+		});
 
-			order.add(pol);
-			orderCollection.orderLines.add(pol);
+		orderCollection.prepareLines(productCollection);
+
+		System.err.println(String.format("+++ loaded: %d orders with %d lines",
+		                                 orderCollection.count(),
+		                                 orderCollection.lineCount()));
+
+		return orderCollection;
+	}
+
+
+
+	/**
+	 * load the PickOrders from the csv, parsing parts of the file concurrently
+	 * <p>
+	 * The file is split into ranges at line starts which are parsed on the executor. The lines
+	 * are merged in file order afterwards: an order whose lines span two ranges is continued by
+	 * the merge, so the result is identical to createFromCsv(String, ProductCollection).
+	 *
+	 * @param fullFilename      full path of the csv
+	 * @param productCollection all products of the day, null to load without product ids
+	 * @param executor          executor for parsing the ranges, must not be busy with the calling task
+	 * @param parts             number of ranges to parse concurrently
+	 *
+	 * @return new PickOrderCollection with all PickOrders and their PickOrderLines from the csv
+	 *
+	 * @throws Exception
+	 */
+	public static PickOrderCollection createFromCsv(final String fullFilename,
+	                                                final ProductCollection productCollection,
+	                                                final ExecutorService executor,
+	                                                final int parts)
+			throws Exception {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(fullFilename), "filename mandatory but is null or whitespace only");
+		Contract.requires(executor != null, "executor mandatory but is null");
+
+		final long[] starts = CsvReader.findLineStarts(fullFilename, parts);
+		final List<Future<List<PickOrderLine>>> ranges = new ArrayList<Future<List<PickOrderLine>>>();
+		for(int part = 0; part < parts; ++part) {
+			final long start = starts[part];
+			final long end = starts[part + 1];
+			ranges.add(executor.submit(new Callable<List<PickOrderLine>>() {
+				@Override
+				public List<PickOrderLine> call()
+						throws Exception {
+
+					final List<PickOrderLine> lines = new ArrayList<PickOrderLine>();
+					final LineParser parser = new LineParser(productCollection);
+					CsvReader.read(fullFilename, start, end, new CsvReader.RecordHandler() {
+						@Override
+						public void handle(final CsvReader.Record record) {
+
+							lines.add(parser.parse(record));
+						}
+					});
+					return lines;
+				}
+			}));
 		}
 
-		orderCollection.prepareCacheNeededQuantity();
+		final PickOrderCollection orderCollection = new PickOrderCollection();
+		for(final Future<List<PickOrderLine>> range : ranges) {
+			for(final PickOrderLine pol : range.get()) {
+				orderCollection.add(pol);
+			}
+		}
+
+		orderCollection.prepareLines(productCollection);
 
-		System.err.println(String.format("+++ loaded: %d orders with %d lines", orderCollection.count(), lineCount));
+		System.err.println(String.format("+++ loaded: %d orders with %d lines",
+		                                 orderCollection.count(),
+		                                 orderCollection.lineCount()));
 
 		return orderCollection;
 	}
@@ -69,20 +234,251 @@ public class PickOrderCollection {
 
 
 	/**
-	 * Sum up the needed quantity for a product and store it
-	 * only called initially
+	 * Create an independent collection of the still open orders
 	 * <p>
-	 * Function used only internally to keep the product/ demand cache up to date
+	 * The copy shares everything that is only read after loading with this collection: the columns of
+	 * the lines, the codes and the order and line objects. It gets its own open orders, pending lines,
+	 * needed quantities and posting lists, so removing an order from either collection does not affect
+	 * the other one. The orders keep their ids, the removed ones stay removed.
+	 * <p>
+	 * Nothing of this collection is changed (the objects of a collection loaded from an InputSnapshot
+	 * are not created either), so copies can be made concurrently as long as this collection is not
+	 * changed at the same time.
+	 *
+	 * @return a newly created collection
+	 */
+	public PickOrderCollection copy() {
+
+		final PickOrderCollection copy = new PickOrderCollection();
+		copy.productCollection = productCollection;
+		copy.lineOrder = lineOrder;
+		copy.lineProduct = lineProduct;
+		copy.lineQuantity = lineQuantity;
+		copy.orderLinePositions = orderLinePositions;
+		if(orderCodes != null) {
+			// the copy creates its own objects on first use
+			copy.orderCodes = orderCodes;
+			copy.lineProductCodes = lineProductCodes;
+		} else {
+			copy.ordersById = ordersById;
+			copy.orderLines = orderLines;
+			copy.orders.putAll(orders);
+		}
+
+		copy.openOrderCount = openOrderCount;
+		copy.openOrderWords = openOrderWords.clone();
+		copy.openOrderTree = openOrderTree.clone();
+		copy.nextLine = nextLine.clone();
+		copy.previousLine = previousLine.clone();
+		copy.pendingLineCount = pendingLineCount;
+
+		for(final Map.Entry<String, int[]> entry : neededQuantityByCode.entrySet()) {
+			copy.neededQuantityByCode.put(entry.getKey(), entry.getValue().clone());
+		}
+		if(neededQuantity != null) {
+			copy.neededQuantity = neededQuantity.clone();
+		}
+		if(firstProductLine != null) {
+			copy.firstProductLine = firstProductLine.clone();
+			copy.nextProductLine = nextProductLine.clone();
+			copy.previousProductLine = previousProductLine.clone();
+		}
+		return copy;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Add a line while loading, creating its order when it is the first line of the order
+	 *
+	 * @param pol the line to add
+	 */
+	void add(final PickOrderLine pol) {
+
+		// the lines of an order usually follow each other
+		if((loadingOrder == null) || !loadingOrder.getOrderId().equals(pol.getOrderId())) {
+			loadingOrder = orders.get(pol.getOrderId());
+			if(loadingOrder == null) {
+				loadingOrder = new PickOrder(pol.getOrderId());
+				loadingOrder.setId(ordersById.size());
+				orders.put(loadingOrder.getOrderId(), loadingOrder);
+				ordersById.add(loadingOrder);
+			}
+		}
+
+		loadingOrder.add(pol);
+		orderLines.add(pol);
+	}
+
+
+	/**
+	 * Fill the per line arrays from the lines, prepare the links and sum up the needed quantity per product
+	 * only called initially, after all lines have been added
+	 *
+	 * @param productCollection the products the ids of the lines refer to, null if the lines have no ids
+	 */
+	void prepareLines(final ProductCollection productCollection) {
+
+		this.productCollection = productCollection;
+
+		final int sentinel = orderLines.size();
+		lineOrder = new int[sentinel];
+		lineProduct = new int[sentinel];
+		lineQuantity = new int[sentinel];
+		for(int position = 0; position < sentinel; ++position) {
+			final PickOrderLine line = orderLines.get(position);
+			lineOrder[position] = orders.get(line.getOrderId()).getId();
+			lineProduct[position] = (productCollection != null) ? line.getProductId() : -1;
+			lineQuantity[position] = line.getQuantity();
+		}
+		prepareLinks(ordersById.size());
+
+		if(productCollection != null) {
+			neededQuantity = new int[productCollection.count()];
+			for(int position = 0; position < sentinel; ++position) {
+				if(lineProduct[position] >= 0) {
+					neededQuantity[lineProduct[position]] += lineQuantity[position];
+				}
+			}
+			prepareProductLines(productCollection.count());
+		}
+	}
+
+
+	/**
+	 * Create a collection from the columns of an InputSnapshot, including the needed quantities and the
+	 * posting lists of a collection that had been prepared from the same lines with the given products
+	 *
+	 * @param productCollection   the products the ids of the lines refer to
+	 * @param orderCodes          code per order id
+	 * @param lineOrder           order id per line position
+	 * @param lineProductCodes    product code per line position
+	 * @param lineProduct         product id per line position, -1 for unknown products
+	 * @param lineQuantity        quantity per line position
+	 * @param neededQuantity      quantity needed per product id
+	 * @param firstProductLine    posting lists of the lines per product id, see getFirstLineOfProduct
+	 * @param nextProductLine     see getNextLineOfProduct
+	 * @param previousProductLine reverse links of nextProductLine
+	 *
+	 * @return newly created instance
 	 */
-	private void prepareCacheNeededQuantity() {
+	static PickOrderCollection createFromColumns(final ProductCollection productCollection,
+	                                             final String[] orderCodes,
+	                                             final int[] lineOrder,
+	                                             final String[] lineProductCodes,
+	                                             final int[] lineProduct,
+	                                             final int[] lineQuantity,
+	                                             final int[] neededQuantity,
+	                                             final int[] firstProductLine,
+	                                             final int[] nextProductLine,
+	                                             final int[] previousProductLine) {
 
-		for(final PickOrderLine ol : orderLines) {
-			int[] q = cacheNeededQuantity.get(ol.getProductCode());
-			if(q == null) {
-				q = new int[] {0};
-				cacheNeededQuantity.put(ol.getProductCode(), q);
+		final PickOrderCollection orderCollection = new PickOrderCollection();
+		orderCollection.productCollection = productCollection;
+		orderCollection.orderCodes = orderCodes;
+		orderCollection.lineProductCodes = lineProductCodes;
+		orderCollection.lineOrder = lineOrder;
+		orderCollection.lineProduct = lineProduct;
+		orderCollection.lineQuantity = lineQuantity;
+		orderCollection.prepareLinks(orderCodes.length);
+
+		orderCollection.neededQuantity = neededQuantity;
+		orderCollection.firstProductLine = firstProductLine;
+		orderCollection.nextProductLine = nextProductLine;
+		orderCollection.previousProductLine = previousProductLine;
+		return orderCollection;
+	}
+
+
+	/**
+	 * Group the line positions by order, link all lines in file order and sum up the needed quantity per
+	 * product code of the lines without product id
+	 *
+	 * @param orderCount number of order ids
+	 */
+	private void prepareLinks(final int orderCount) {
+
+		final int sentinel = lineOrder.length;
+		final int[] orderLineCount = new int[orderCount];
+		for(int position = 0; position < sentinel; ++position) {
+			++orderLineCount[lineOrder[position]];
+		}
+		orderLinePositions = new int[orderCount][];
+		for(int orderId = 0; orderId < orderCount; ++orderId) {
+			orderLinePositions[orderId] = new int[orderLineCount[orderId]];
+		}
+		final int[] fill = new int[orderCount];
+		for(int position = 0; position < sentinel; ++position) {
+			orderLinePositions[lineOrder[position]][fill[lineOrder[position]]++] = position;
+		}
+		openOrderCount = orderCount;
+		prepareOpenOrders(orderCount);
+
+		nextLine = new int[sentinel + 1];
+		previousLine = new int[sentinel + 1];
+		for(int position = 0; position <= sentinel; ++position) {
+			nextLine[position] = (position + 1) % (sentinel + 1);
+			previousLine[(position + 1) % (sentinel + 1)] = position;
+		}
+		pendingLineCount = sentinel;
+
+		for(int position = 0; position < sentinel; ++position) {
+			if(lineProduct[position] < 0) {
+				final String productCode = getProductCode(position);
+				int[] q = neededQuantityByCode.get(productCode);
+				if(q == null) {
+					q = new int[] {0};
+					neededQuantityByCode.put(productCode, q);
+				}
+				q[0] += lineQuantity[position];
+			}
+		}
+	}
+
+
+	/**
+	 * Whether the lines have been resolved to product ids while loading, which the Scheduler, the Solution
+	 * and all queries by product id need
+	 *
+	 * @return
+	 */
+	public boolean hasProductIds() {
+
+		return productCollection != null;
+	}
+
+
+	/**
+	 * Link the lines of all open orders into the posting list of their product
+	 *
+	 * @param productCount number of product ids
+	 */
+	private void prepareProductLines(final int productCount) {
+
+		final int[] lastProductLine = new int[productCount];
+		firstProductLine = new int[productCount];
+		nextProductLine = new int[orderLines.size()];
+		previousProductLine = new int[orderLines.size()];
+		Arrays.fill(firstProductLine, -1);
+		Arrays.fill(lastProductLine, -1);
+		Arrays.fill(nextProductLine, -1);
+		Arrays.fill(previousProductLine, -1);
+
+		for(final PickOrder order : orders.values()) {
+			for(final int position : orderLinePositions[order.getId()]) {
+				final int productId = lineProduct[position];
+				if(productId < 0) {
+					continue;
+				}
+				if(lastProductLine[productId] < 0) {
+					firstProductLine[productId] = position;
+				} else {
+					nextProductLine[lastProductLine[productId]] = position;
+					previousProductLine[position] = lastProductLine[productId];
+				}
+				lastProductLine[productId] = position;
 			}
-			q[0] += ol.getQuantity();
 		}
 	}
 
@@ -94,7 +490,7 @@ public class PickOrderCollection {
 	 */
 	public int count() {
 
-		return orders.size();
+		return openOrderCount;
 	}
 
 
@@ -105,7 +501,7 @@ public class PickOrderCollection {
 	 */
 	public int lineCount() {
 
-		return orderLines.size();
+		return pendingLineCount;
 	}
 
 	// ----------------------------------------------------------------------------
@@ -121,10 +517,27 @@ public class PickOrderCollection {
 	 */
 	public int getCurrentNeededQuantity(final String productCode) {
 
-		if(cacheNeededQuantity.containsKey(productCode)) {
-			return cacheNeededQuantity.get(productCode)[0];
+		final Product product = (productCollection != null) ? productCollection.findByCode(productCode) : null;
+		if(product != null) {
+			return neededQuantity[product.getId()];
 		}
-		return 0;
+		final int[] q = neededQuantityByCode.get(productCode);
+		return (q != null) ? q[0] : 0;
+	}
+
+
+	/**
+	 * Retrieve the quantity that is currently needed for the product spcified
+	 * for all still open orders
+	 *
+	 * @param productId id of the product to get the quantity for
+	 *
+	 * @return needed pcs
+	 */
+	public int getCurrentNeededQuantity(final int productId) {
+
+		requireProductIds();
+		return neededQuantity[productId];
 	}
 
 
@@ -137,9 +550,199 @@ public class PickOrderCollection {
 	 */
 	public PickOrder findPickOrder(final String orderId) {
 
-		Contract.requires(orderId == null, "illegal argument: orderId = null");
+		Contract.requires(orderId != null, "illegal argument: orderId = null");
 
-		return orders.containsKey(orderId) ? orders.get(orderId) : null;
+		createOrders();
+		return orders.get(orderId);
+	}
+
+
+	/**
+	 * Get the pickorder with the given (dense) id, also if it has already been removed
+	 *
+	 * @param id id assigned while loading
+	 *
+	 * @return the pickorder
+	 */
+	public PickOrder getPickOrder(final int id) {
+
+		createOrders();
+		return ordersById.get(id);
+	}
+
+
+	/**
+	 * The number of ids assigned to pickorders, including the removed ones
+	 *
+	 * @return
+	 */
+	public int idCount() {
+
+		return orderLinePositions.length;
+	}
+
+	// ----------------------------------------------------------------------------
+	// primitive view - the returned arrays are shared and must not be modified
+
+	/**
+	 * The id of the order of each line, indexed by line position (file order)
+	 */
+	public int[] getLineOrders() {
+
+		return lineOrder;
+	}
+
+
+	/**
+	 * The product id of each line, indexed by line position (file order)
+	 */
+	public int[] getLineProducts() {
+
+		requireProductIds();
+		return lineProduct;
+	}
+
+
+	/**
+	 * The quantity of each line, indexed by line position (file order)
+	 */
+	public int[] getLineQuantities() {
+
+		return lineQuantity;
+	}
+
+
+	/**
+	 * The line positions of an order
+	 *
+	 * @param orderId the (dense) id of the order
+	 */
+	public int[] getOrderLinePositions(final int orderId) {
+
+		return orderLinePositions[orderId];
+	}
+
+
+	/**
+	 * The quantity needed by all still open orders, indexed by product id
+	 */
+	public int[] getNeededQuantities() {
+
+		requireProductIds();
+		return neededQuantity;
+	}
+
+
+	/**
+	 * The first open line of a product, the lines of a product are in the sequence of their orders
+	 *
+	 * @param productId id of the product
+	 *
+	 * @return line position, -1 if no open order needs the product
+	 */
+	public int getFirstLineOfProduct(final int productId) {
+
+		requireProductIds();
+		return firstProductLine[productId];
+	}
+
+
+	/**
+	 * The next open line of the same product
+	 *
+	 * @param position position of an open line
+	 *
+	 * @return line position, -1 after the last line of the product
+	 */
+	public int getNextLineOfProduct(final int position) {
+
+		return nextProductLine[position];
+	}
+
+	// ----------------------------------------------------------------------------
+	// posting lists for the InputSnapshot - shared and must not be modified
+
+
+	int[] getFirstProductLines() {
+
+		return firstProductLine;
+	}
+
+
+	int[] getNextProductLines() {
+
+		return nextProductLine;
+	}
+
+
+	int[] getPreviousProductLines() {
+
+		return previousProductLine;
+	}
+
+	// ----------------------------------------------------------------------------
+	// demand queries - take time proportional to the open lines of the product (and the orders skipped)
+
+
+	/**
+	 * The quantity of a product needed by the first open orders
+	 *
+	 * @param productId  id of the product
+	 * @param orderCount number of open orders to consider, in the sequence of the collection
+	 *
+	 * @return needed pcs
+	 */
+	public int getNeededQuantityOfNextOrders(final int productId, final int orderCount) {
+
+		Contract.requires(orderCount >= 0, "orderCount must not be negative");
+		requireProductIds();
+
+		final int endOrderId = idOfOpenOrder(orderCount);
+		int quantity = 0;
+		for(int position = firstProductLine[productId];
+		    (position >= 0) && (lineOrder[position] < endOrderId);
+		    position = nextProductLine[position]) {
+			quantity += lineQuantity[position];
+		}
+		return quantity;
+	}
+
+
+	/**
+	 * The open orders that need the product and would have enough stock on hand for all their
+	 * lines if the product gained the given quantity, but do not have it now
+	 * <p>
+	 * Every line is compared with the stock of its product in total over all locations, like the
+	 * Scheduler does: orders picked before them might still take the stock in the simulation.
+	 *
+	 * @param productId      id of the product
+	 * @param quantity       pcs the product would gain
+	 * @param warehouseState the current stock
+	 *
+	 * @return the orders, in the sequence of the collection
+	 */
+	public List<PickOrder> findOrdersPickableWith(final int productId,
+	                                              final int quantity,
+	                                              final WarehouseState warehouseState) {
+
+		Contract.requires(quantity > 0, "quantity must be positive");
+		Contract.requires(warehouseState != null, "warehouseState mandatory but is null");
+		requireProductIds();
+
+		createOrders();
+		final List<PickOrder> pickable = new ArrayList<PickOrder>();
+		int previousOrderId = -1;
+		for(int position = firstProductLine[productId]; position >= 0; position = nextProductLine[position]) {
+			final int orderId = lineOrder[position];
+			if(orderId == previousOrderId) {
+				continue;
+			}
+			previousOrderId = orderId;
+			if(hasStock(orderId, warehouseState, productId, quantity) && !hasStock(orderId, warehouseState, productId, 0)) {
+				pickable.add(ordersById.get(orderId));
+			}
+		}
+		return pickable;
 	}
 
 	// ----------------------------------------------------------------------------
@@ -150,35 +753,53 @@ public class PickOrderCollection {
 	 */
 	public Collection<PickOrder> getPickOrders() {
 
+		createOrders();
 		return Collections.unmodifiableCollection(orders.values());
 	}
 
 
 	/**
 	 * get all the currently pending orderlines
+	 * <p>
+	 * The returned list is a read-only view in file order that reflects later removals. Iterating it
+	 * follows the links of the pending lines; get(i) is O(1), except that the first get after a removal
+	 * rebuilds the index of the view in O(pending lines)
 	 *
 	 * @return
 	 */
 	public List<PickOrderLine> getPickOrderLines() {
 
-		return Collections.unmodifiableList(orderLines);
+		createOrders();
+		return pendingLines;
 	}
 
 
+	/**
+	 * Remove an order and all of its lines, e.g. because it has been picked
+	 * <p>
+	 * Takes time proportional to the number of lines of the order only
+	 *
+	 * @param order the order to remove
+	 */
 	public void remove(final PickOrder order) {
 
 		Contract.requires(order != null, "order must not be <null>");
 
-		orders.remove(order.getOrderId());
+		if(orders.remove(order.getOrderId()) == null) {
+			return;
+		}
+		--openOrderCount;
+		removeOpenOrder(order.getId());
 
-		for(final Iterator<PickOrderLine> it = orderLines.iterator(); it.hasNext(); ) {
-			final PickOrderLine ol = it.next();
-			if(order.getOrderId().equals(ol.getOrderId())) {
-				it.remove();
-			}
+		for(final int position : orderLinePositions[order.getId()]) {
+			nextLine[previousLine[position]] = nextLine[position];
+			previousLine[nextLine[position]] = previousLine[position];
+			--pendingLineCount;
 		}
+		pendingLines.invalidate();
 
 		decreaseNeededQuantity(order);
+		unlinkProductLines(order);
 	}
 
 
@@ -191,12 +812,375 @@ public class PickOrderCollection {
 	 */
 	private void decreaseNeededQuantity(final PickOrder pickOrder) {
 
-		for(final PickOrderLine pickOrderLine : pickOrder.getPickOrderLines()) {
-			if(cacheNeededQuantity.containsKey(pickOrderLine.getProductCode())) {
-				cacheNeededQuantity.get(pickOrderLine.getProductCode())[0] -= pickOrderLine.getQuantity();
+		for(final int position : orderLinePositions[pickOrder.getId()]) {
+			if(lineProduct[position] >= 0) {
+				neededQuantity[lineProduct[position]] -= lineQuantity[position];
+			} else {
+				neededQuantityByCode.get(getProductCode(position))[0] -= lineQuantity[position];
+			}
+		}
+	}
+
+
+
+	/**
+	 * remove the lines of an order from the posting lists of their products
+	 *
+	 * @param pickOrder
+	 */
+	private void unlinkProductLines(final PickOrder pickOrder) {
+
+		if(firstProductLine == null) {
+			return;
+		}
+
+		for(final int position : orderLinePositions[pickOrder.getId()]) {
+			final int productId = lineProduct[position];
+			if(productId < 0) {
+				continue;
+			}
+			if(previousProductLine[position] >= 0) {
+				nextProductLine[previousProductLine[position]] = nextProductLine[position];
+			} else {
+				firstProductLine[productId] = nextProductLine[position];
+			}
+			if(nextProductLine[position] >= 0) {
+				previousProductLine[nextProductLine[position]] = previousProductLine[position];
 			}
 		}
 	}
 
+
+	/**
+	 * Create the PickOrder and PickOrderLine objects of a collection loaded from an InputSnapshot
+	 * <p>
+	 * Only a copy can have removed orders before its objects are created: they get objects as well,
+	 * but are not registered as open
+	 */
+	private void createOrders() {
+
+		if(orderCodes == null) {
+			return;
+		}
+		for(int orderId = 0; orderId < orderCodes.length; ++orderId) {
+			final PickOrder order = new PickOrder(orderCodes[orderId]);
+			order.setId(orderId);
+			if((openOrderWords[orderId >>> 6] & (1L << orderId)) != 0) {
+				orders.put(order.getOrderId(), order);
+			}
+			ordersById.add(order);
+		}
+		for(int position = 0; position < lineOrder.length; ++position) {
+			final PickOrderLine line = new PickOrderLine(orderCodes[lineOrder[position]],
+			                                             lineProductCodes[position],
+			                                             lineQuantity[position]);
+			line.setProductId(lineProduct[position]);
+			ordersById.get(lineOrder[position]).add(line);
+			orderLines.add(line);
+		}
+		orderCodes = null;
+		lineProductCodes = null;
+	}
+
+
+	/**
+	 * The code of an order, without creating the order objects
+	 */
+	private String getOrderCode(final int orderId) {
+
+		return (orderCodes != null) ? orderCodes[orderId] : ordersById.get(orderId).getOrderId();
+	}
+
+
+	/**
+	 * The product code of a line, without creating the line objects
+	 */
+	private String getProductCode(final int position) {
+
+		return (lineProductCodes != null) ? lineProductCodes[position] : orderLines.get(position).getProductCode();
+	}
+
+
+	private void requireProductIds() {
+
+		if(productCollection == null) {
+			throw new IllegalStateException("the pick orders have been loaded without products, " +
+			                                "use createFromCsv(fullFilename, productCollection)");
+		}
+	}
+
+
+	/**
+	 * Whether the stock on hand covers every line of an order, each line on its own like the Scheduler checks it
+	 *
+	 * @param orderId        id of the order
+	 * @param warehouseState current stock
+	 * @param productId      product with additional stock
+	 * @param extra          the additional pcs
+	 */
+	private boolean hasStock(final int orderId, final WarehouseState warehouseState, final int productId, final int extra) {
+
+		for(final int position : orderLinePositions[orderId]) {
+			final int lineProductId = lineProduct[position];
+			if(lineProductId < 0) {
+				return false;
+			}
+			final int stock = warehouseState.getProductQuantity(lineProductId) + ((lineProductId == productId) ? extra : 0);
+			if(stock < lineQuantity[position]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * Mark all order ids as open
+	 *
+	 * @param orderCount number of order ids
+	 */
+	private void prepareOpenOrders(final int orderCount) {
+
+		final int wordCount = (orderCount + 63) >>> 6;
+		openOrderWords = new long[wordCount];
+		for(int orderId = 0; orderId < orderCount; orderId += 64) {
+			final int bits = Math.min(64, orderCount - orderId);
+			openOrderWords[orderId >>> 6] = (bits == 64) ? -1L : ((1L << bits) - 1);
+		}
+
+		openOrderTree = new int[wordCount + 1];
+		for(int i = 1; i <= wordCount; ++i) {
+			openOrderTree[i] += Long.bitCount(openOrderWords[i - 1]);
+			final int parent = i + (i & -i);
+			if(parent <= wordCount) {
+				openOrderTree[parent] += openOrderTree[i];
+			}
+		}
+	}
+
+
+	private void removeOpenOrder(final int orderId) {
+
+		openOrderWords[orderId >>> 6] &= ~(1L << orderId);
+		for(int i = (orderId >>> 6) + 1; i < openOrderTree.length; i += i & -i) {
+			--openOrderTree[i];
+		}
+	}
+
+
+	/**
+	 * @return id of the open order with the given index in the sequence of the collection, idCount() if there is none
+	 */
+	private int idOfOpenOrder(final int index) {
+
+		if(index >= openOrderCount) {
+			return idCount();
+		}
+
+		// the last word whose preceding words hold at most index open orders
+		int word = 0;
+		int remaining = index;
+		for(int step = Integer.highestOneBit(openOrderTree.length - 1); step > 0; step >>>= 1) {
+			if((word + step < openOrderTree.length) && (openOrderTree[word + step] <= remaining)) {
+				word += step;
+				remaining -= openOrderTree[word];
+			}
+		}
+
+		long bits = openOrderWords[word];
+		for(int i = 0; i < remaining; ++i) {
+			bits &= bits - 1;
+		}
+		return (word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+
 	// ----------------------------------------------------------------------------
+
+	// ===========================================================================
+	// ===========================================================================
+
+	/**
+	 * Creates the lines of a csv, reusing the order id of the previous line if it is the same
+	 * instead of decoding it again, and resolves their product ids
+	 */
+	private static class LineParser {
+
+		private final ProductCollection productCollection;
+		private String previousOrderId = null;
+
+
+		private LineParser(final ProductCollection productCollection) {
+
+			this.productCollection = productCollection;
+		}
+
+
+		private PickOrderLine parse(final CsvReader.Record record) {
+
+			if(!record.equals(0, previousOrderId)) {
+				previousOrderId = record.getString(0).trim();
+			}
+			final PickOrderLine line = new PickOrderLine(previousOrderId, record.getString(1), record.getInt(2));
+			if(productCollection != null) {
+				final Product product = productCollection.findByCode(line.getProductCode());
+				line.setProductId((product != null) ? product.getId() : -1);
+			}
+			return line;
+		}
+	}
+
+	/**
+	 * Read-only list view following the links of the pending lines, with an index of their positions for
+	 * get(i) that is built on demand
+	 */
+	private class PendingLines
+			extends AbstractList<PickOrderLine>
+			implements RandomAccess {
+
+		/**
+		 * positions of the pending lines in file order, null until the next get after a removal
+		 */
+		private int[] positions = null;
+
+
+		@Override
+		public int size() {
+
+			return pendingLineCount;
+		}
+
+
+		@Override
+		public PickOrderLine get(final int index) {
+
+			if((index < 0) || (index >= pendingLineCount)) {
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + pendingLineCount);
+			}
+
+			if(positions == null) {
+				final int sentinel = lineOrder.length;
+				positions = new int[pendingLineCount];
+				int i = 0;
+				for(int position = nextLine[sentinel]; position != sentinel; position = nextLine[position]) {
+					positions[i++] = position;
+				}
+			}
+			return orderLines.get(positions[index]);
+		}
+
+
+		@Override
+		public Iterator<PickOrderLine> iterator() {
+
+			return new PendingLinesIterator();
+		}
+
+
+		@Override
+		public ListIterator<PickOrderLine> listIterator(final int index) {
+
+			if((index < 0) || (index > pendingLineCount)) {
+				throw new IndexOutOfBoundsException("index: " + index + ", size: " + pendingLineCount);
+			}
+
+			final ListIterator<PickOrderLine> it = new PendingLinesIterator();
+			for(int i = 0; i < index; ++i) {
+				it.next();
+			}
+			return it;
+		}
+
+
+		private void invalidate() {
+
+			positions = null;
+		}
+	}
+
+	private class PendingLinesIterator
+			implements ListIterator<PickOrderLine> {
+
+		private final int sentinel = lineOrder.length;
+		/**
+		 * position of the line that is returned by next()
+		 */
+		private int position = nextLine[sentinel];
+		private int index = 0;
+
+
+		@Override
+		public boolean hasNext() {
+
+			return position != sentinel;
+		}
+
+
+		@Override
+		public PickOrderLine next() {
+
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final PickOrderLine line = orderLines.get(position);
+			position = nextLine[position];
+			++index;
+			return line;
+		}
+
+
+		@Override
+		public boolean hasPrevious() {
+
+			return previousLine[position] != sentinel;
+		}
+
+
+		@Override
+		public PickOrderLine previous() {
+
+			if(!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			position = previousLine[position];
+			--index;
+			return orderLines.get(position);
+		}
+
+
+		@Override
+		public int nextIndex() {
+
+			return index;
+		}
+
+
+		@Override
+		public int previousIndex() {
+
+			return index - 1;
+		}
+
+
+		@Override
+		public void remove() {
+
+			throw new UnsupportedOperationException("pending lines are read-only");
+		}
+
+
+		@Override
+		public void set(final PickOrderLine line) {
+
+			throw new UnsupportedOperationException("pending lines are read-only");
+		}
+
+
+		@Override
+		public void add(final PickOrderLine line) {
+
+			throw new UnsupportedOperationException("pending lines are read-only");
+		}
+	}
 }
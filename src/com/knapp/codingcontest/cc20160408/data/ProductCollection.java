@@ -4,22 +4,28 @@ import com.knapp.codingcontest.cc20160408.entities.Product;
 import com.knapp.codingcontest.cc20160408.util.Contract;
 import com.knapp.codingcontest.cc20160408.util.CsvReader;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
 
 public class ProductCollection {
 
 	private final Map<String, Product> products = new LinkedHashMap<String, Product>();
+	private final List<Product> productsById = new ArrayList<Product>();
+
+	/**
+	 * columns of a collection loaded from an InputSnapshot: the Product objects are created from them
+	 * on first use, the columns are null afterwards (collections are shared by concurrent runs)
+	 */
+	private volatile String[] codes = null;
+	private int[] maxLocationQuantities;
+	private boolean[] fastMovers;
 
 	// ----------------------------------------------------------------------------
 
 
 	/**
-	 * A product collection can only be created using CreateFromCsv
+	 * A product collection can only be created using CreateFromCsv or from an InputSnapshot
 	 */
-	private ProductCollection() {
+	ProductCollection() {
 
 	}
 
@@ -40,27 +46,60 @@ public class ProductCollection {
 
 		final ProductCollection productCollection = new ProductCollection();
 
-		for(final Product product : CsvReader.readCsvFile(fullFilename, Product.class)) {
-			productCollection.add(product);
-		}
+		CsvReader.read(fullFilename, new CsvReader.RecordHandler() {
+			@Override
+			public void handle(final CsvReader.Record record) {
+
+				productCollection.add(new Product(record.getString(0), record.getInt(1), record.getBoolean(2)));
+			}
+		});
 		System.err.println(String.format("+++ loaded: %d products", productCollection.count()));
 
 		return productCollection;
 	}
 
+
+	/**
+	 * Create a collection from the columns of an InputSnapshot, the products get the ids of their index
+	 *
+	 * @param codes                 code per product
+	 * @param maxLocationQuantities max. quantity per location per product
+	 * @param fastMovers            fast mover flag per product
+	 *
+	 * @return newly created instance
+	 */
+	static ProductCollection createFromColumns(final String[] codes,
+	                                           final int[] maxLocationQuantities,
+	                                           final boolean[] fastMovers) {
+
+		final ProductCollection productCollection = new ProductCollection();
+		productCollection.maxLocationQuantities = maxLocationQuantities;
+		productCollection.fastMovers = fastMovers;
+		productCollection.codes = codes;
+		return productCollection;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
 	/**
-	 * Add a product to the collection
+	 * Add a product to the collection, a product with the same code is replaced and its id reused
 	 *
 	 * @param product the product to add
 	 */
-	private void add(final Product product) {
+	void add(final Product product) {
 
 		Contract.requires(product != null, "product mandatory but is null");
 
-		products.put(product.getCode(), product);
+		final Product previous = products.put(product.getCode(), product);
+		if(previous != null) {
+			// a code listed twice keeps its id, the last row wins
+			product.setId(previous.getId());
+			productsById.set(previous.getId(), product);
+		} else {
+			product.setId(productsById.size());
+			productsById.add(product);
+		}
 	}
 
 
@@ -71,7 +110,8 @@ public class ProductCollection {
 	 */
 	public int count() {
 
-		return products.size();
+		final String[] columnCodes = codes;
+		return (columnCodes != null) ? columnCodes.length : productsById.size();
 	}
 
 
@@ -86,6 +126,7 @@ public class ProductCollection {
 
 		Contract.requires(!Contract.isNullOrWhiteSpace(productCode), "productCode mandatory but is null or whitespace");
 
+		createProducts();
 		if(products.containsKey(productCode)) {
 			return products.get(productCode);
 		}
@@ -93,6 +134,20 @@ public class ProductCollection {
 		return null;
 	}
 
+
+	/**
+	 * Get the product with the given (dense) id
+	 *
+	 * @param id id assigned while loading, 0..count-1
+	 *
+	 * @return the product
+	 */
+	public Product getProduct(final int id) {
+
+		createProducts();
+		return productsById.get(id);
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -101,6 +156,30 @@ public class ProductCollection {
 	 */
 	public Collection<Product> getProducts() {
 
+		createProducts();
 		return Collections.unmodifiableCollection(products.values());
 	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Create the Product objects of a collection loaded from an InputSnapshot
+	 */
+	private void createProducts() {
+
+		if(codes == null) {
+			return;
+		}
+		synchronized(this) {
+			if(codes != null) {
+				for(int i = 0; i < codes.length; ++i) {
+					add(new Product(codes[i], maxLocationQuantities[i], fastMovers[i]));
+				}
+				maxLocationQuantities = null;
+				fastMovers = null;
+				codes = null;
+			}
+		}
+	}
 }
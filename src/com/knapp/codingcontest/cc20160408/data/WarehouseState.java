@@ -0,0 +1,361 @@
+package com.knapp.codingcontest.cc20160408.data;
+
+import com.knapp.codingcontest.cc20160408.entities.Location;
+import com.knapp.codingcontest.cc20160408.entities.PickOrder;
+import com.knapp.codingcontest.cc20160408.util.Contract;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * The mutable state of the warehouse by dense ids: stock per location, stock per product and the open orders
+ * <p>
+ * The Scheduler records every change it makes to the locations and the order collection here, so the
+ * state always matches the entities between two ticks. A strategy can apply hypothetical changes
+ * after mark() and undo them in O(number of changes) with rollback(mark); marks can be nested.
+ * Changes are only journaled while a mark is outstanding.
+ * <p>
+ * Listeners are informed about every change, including the ones done by rollback, so indexes derived
+ * from the state stay consistent with it.
+ */
+public final class WarehouseState {
+	// ----------------------------------------------------------------------------
+
+	/**
+	 * Receives all changes of the state
+	 */
+	public interface Listener {
+
+		/**
+		 * The stock of a product changed
+		 *
+		 * @param productId   id of the product
+		 * @param oldQuantity pieces on all locations before the change
+		 * @param newQuantity pieces on all locations after the change
+		 */
+		void productQuantityChanged(int productId, int oldQuantity, int newQuantity);
+
+
+		/**
+		 * An order has been removed (picked) or restored by a rollback
+		 *
+		 * @param orderId id of the order
+		 * @param open    whether the order is open now
+		 */
+		void orderChanged(int orderId, boolean open);
+	}
+
+	// ----------------------------------------------------------------------------
+
+	private static final int LOCATION_CHANGE = 0;
+	private static final int ORDER_CHANGE = 1;
+	private static final int JOURNAL_STRIDE = 4;
+
+	// ----------------------------------------------------------------------------
+
+	/**
+	 * assigned product id (-1 for none) and quantity on hand per location id
+	 */
+	private final int[] locationProduct;
+	private final int[] locationQuantity;
+	private int occupiedLocations = 0;
+
+	/**
+	 * quantity on all locations per product id
+	 */
+	private final int[] productQuantity;
+
+	private final BitSet openOrders = new BitSet();
+	private int openOrderCount = 0;
+
+	/**
+	 * entries of JOURNAL_STRIDE ints: type, id, old value(s)
+	 */
+	private int[] journal = new int[64 * WarehouseState.JOURNAL_STRIDE];
+	private int journalSize = 0;
+	private int markDepth = 0;
+
+	private final List<Listener> listeners = new ArrayList<Listener>();
+
+	// ----------------------------------------------------------------------------
+
+
+	private WarehouseState(final int locationCount, final int productCount) {
+
+		locationProduct = new int[locationCount];
+		locationQuantity = new int[locationCount];
+		productQuantity = new int[productCount];
+		Arrays.fill(locationProduct, -1);
+	}
+
+
+	/**
+	 * Capture the current state of the collections
+	 *
+	 * @param locationCollection  the locations (with their stock)
+	 * @param productCollection   the products
+	 * @param pickOrderCollection the orders that are still open
+	 *
+	 * @return a newly created state
+	 */
+	public static WarehouseState create(final LocationCollection locationCollection,
+	                                    final ProductCollection productCollection,
+	                                    final PickOrderCollection pickOrderCollection) {
+
+		Contract.requires(locationCollection != null, "locationCollection mandatory but is null");
+		Contract.requires(productCollection != null, "productCollection mandatory but is null");
+		Contract.requires(pickOrderCollection != null, "pickOrderCollection mandatory but is null");
+
+		final WarehouseState state = new WarehouseState(locationCollection.count(), productCollection.count());
+		for(final Location location : locationCollection.getLocations()) {
+			if(location.getQuantityOnHand() > 0) {
+				state.apply(location.getId(), location.getAssignedProduct().getId(), location.getQuantityOnHand());
+			}
+		}
+		for(final PickOrder order : pickOrderCollection.getPickOrders()) {
+			state.openOrders.set(order.getId());
+			state.openOrderCount++;
+		}
+		return state;
+	}
+
+
+	/**
+	 * An independent copy of the current state, without journal and listeners (e.g. for a parallel search)
+	 *
+	 * @return a newly created state
+	 */
+	public WarehouseState copy() {
+
+		final WarehouseState copy = new WarehouseState(locationProduct.length, productQuantity.length);
+		System.arraycopy(locationProduct, 0, copy.locationProduct, 0, locationProduct.length);
+		System.arraycopy(locationQuantity, 0, copy.locationQuantity, 0, locationQuantity.length);
+		System.arraycopy(productQuantity, 0, copy.productQuantity, 0, productQuantity.length);
+		copy.occupiedLocations = occupiedLocations;
+		copy.openOrders.or(openOrders);
+		copy.openOrderCount = openOrderCount;
+		return copy;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	public void addListener(final Listener listener) {
+
+		Contract.requires(listener != null, "listener mandatory but is null");
+
+		listeners.add(listener);
+	}
+
+
+	public void removeListener(final Listener listener) {
+
+		listeners.remove(listener);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param locationId id of the location
+	 *
+	 * @return id of the product on the location, -1 if the location is empty
+	 */
+	public int getLocationProduct(final int locationId) {
+
+		return locationProduct[locationId];
+	}
+
+
+	public int getLocationQuantity(final int locationId) {
+
+		return locationQuantity[locationId];
+	}
+
+
+	public int getProductQuantity(final int productId) {
+
+		return productQuantity[productId];
+	}
+
+
+	public int locationCount() {
+
+		return locationProduct.length;
+	}
+
+
+	public int freeLocationCount() {
+
+		return locationProduct.length - occupiedLocations;
+	}
+
+
+	public boolean isOpen(final int orderId) {
+
+		return openOrders.get(orderId);
+	}
+
+
+	public int openOrderCount() {
+
+		return openOrderCount;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Change the stock of a location
+	 *
+	 * @param locationId id of the location
+	 * @param productId  id of the product, ignored if the quantity is 0
+	 * @param quantity   new quantity on hand, 0 to clear the location
+	 */
+	public void setLocation(final int locationId, final int productId, final int quantity) {
+
+		Contract.requires(quantity >= 0, "quantity must not be negative");
+		Contract.requires((quantity == 0) || (productId >= 0), "product mandatory for stock");
+
+		if(markDepth > 0) {
+			record(WarehouseState.LOCATION_CHANGE, locationId, locationProduct[locationId], locationQuantity[locationId]);
+		}
+		apply(locationId, productId, quantity);
+	}
+
+
+	/**
+	 * Remove an order from the open orders, e.g. because it has been picked
+	 *
+	 * @param orderId id of the order
+	 */
+	public void removeOrder(final int orderId) {
+
+		if(!openOrders.get(orderId)) {
+			return;
+		}
+		if(markDepth > 0) {
+			record(WarehouseState.ORDER_CHANGE, orderId, 1, 0);
+		}
+		setOpen(orderId, false);
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * Start journaling changes
+	 *
+	 * @return the mark to pass to rollback or release
+	 */
+	public int mark() {
+
+		markDepth++;
+		return journalSize;
+	}
+
+
+	/**
+	 * Undo all changes since the mark was taken and end the mark
+	 *
+	 * @param mark value returned by mark()
+	 */
+	public void rollback(final int mark) {
+
+		Contract.requires((markDepth > 0) && (mark >= 0) && (mark <= journalSize), "invalid mark");
+
+		while(journalSize > mark) {
+			journalSize -= WarehouseState.JOURNAL_STRIDE;
+			final int id = journal[journalSize + 1];
+			if(journal[journalSize] == WarehouseState.LOCATION_CHANGE) {
+				apply(id, journal[journalSize + 2], journal[journalSize + 3]);
+			} else {
+				setOpen(id, journal[journalSize + 2] != 0);
+			}
+		}
+		endMark();
+	}
+
+
+	/**
+	 * Keep all changes since the mark was taken and end the mark
+	 *
+	 * @param mark value returned by mark()
+	 */
+	public void release(final int mark) {
+
+		Contract.requires((markDepth > 0) && (mark >= 0) && (mark <= journalSize), "invalid mark");
+
+		endMark();
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private void endMark() {
+
+		markDepth--;
+		if(markDepth == 0) {
+			journalSize = 0;
+		}
+	}
+
+
+	private void record(final int type, final int id, final int value1, final int value2) {
+
+		if((journalSize + WarehouseState.JOURNAL_STRIDE) > journal.length) {
+			journal = Arrays.copyOf(journal, journal.length * 2);
+		}
+		journal[journalSize] = type;
+		journal[journalSize + 1] = id;
+		journal[journalSize + 2] = value1;
+		journal[journalSize + 3] = value2;
+		journalSize += WarehouseState.JOURNAL_STRIDE;
+	}
+
+
+	private void apply(final int locationId, final int productId, final int quantity) {
+
+		final int oldProduct = locationProduct[locationId];
+		final int oldQuantity = locationQuantity[locationId];
+		final int newProduct = (quantity > 0) ? productId : -1;
+
+		locationProduct[locationId] = newProduct;
+		locationQuantity[locationId] = quantity;
+		occupiedLocations += ((quantity > 0) ? 1 : 0) - ((oldQuantity > 0) ? 1 : 0);
+
+		if(oldProduct == newProduct) {
+			changeProductQuantity(newProduct, quantity - oldQuantity);
+		} else {
+			changeProductQuantity(oldProduct, -oldQuantity);
+			changeProductQuantity(newProduct, quantity);
+		}
+	}
+
+
+	private void changeProductQuantity(final int productId, final int delta) {
+
+		if((productId < 0) || (delta == 0)) {
+			return;
+		}
+		final int oldQuantity = productQuantity[productId];
+		productQuantity[productId] = oldQuantity + delta;
+		for(int i = 0; i < listeners.size(); ++i) {
+			listeners.get(i).productQuantityChanged(productId, oldQuantity, oldQuantity + delta);
+		}
+	}
+
+
+	private void setOpen(final int orderId, final boolean open) {
+
+		openOrders.set(orderId, open);
+		openOrderCount += open ? 1 : -1;
+		for(int i = 0; i < listeners.size(); ++i) {
+			listeners.get(i).orderChanged(orderId, open);
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+}
@@ -9,6 +9,16 @@ public class Location {
 
 	private final String code;
 
+	/**
+	 * The zone the location is in
+	 */
+	private final String zone;
+
+	/**
+	 * The aisle the location is in
+	 */
+	private final String aisle;
+
 	/**
 	 * The currently assigned product
 	 */
@@ -19,6 +29,17 @@ public class Location {
 	 */
 	private int quantityOnHand = 0;
 
+	/**
+	 * Dense id (0..count-1) assigned by the LocationCollection while loading
+	 */
+	private int id = -1;
+
+	/**
+	 * Dense indices of the zone and the aisle assigned by the LocationCollection while loading
+	 */
+	private int zoneIndex = -1;
+	private int aisleIndex = -1;
+
 	// ----------------------------------------------------------------------------
 
 
@@ -34,9 +55,29 @@ public class Location {
 		Contract.requires(!Contract.isNullOrWhiteSpace(dataAsArray[0]), "zone name must be set");
 		Contract.requires(!Contract.isNullOrWhiteSpace(dataAsArray[2]), "location code must be set");
 
+		zone = dataAsArray[0];
+		aisle = dataAsArray[1];
 		code = dataAsArray[2];
 	}
 
+
+	/**
+	 * Construct the location from the already separated fields
+	 *
+	 * @param zone  name of the zone
+	 * @param aisle code of the aisle
+	 * @param code  code of the location
+	 */
+	public Location(final String zone, final String aisle, final String code) {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(zone), "zone name must be set");
+		Contract.requires(!Contract.isNullOrWhiteSpace(code), "location code must be set");
+
+		this.zone = zone;
+		this.aisle = aisle;
+		this.code = code;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -69,6 +110,54 @@ public class Location {
 		return code;
 	}
 
+
+	public String getZone() {
+
+		return zone;
+	}
+
+
+	public String getAisle() {
+
+		return aisle;
+	}
+
+
+	public int getId() {
+
+		return id;
+	}
+
+
+	public void setId(final int id) {
+
+		this.id = id;
+	}
+
+
+	public int getZoneIndex() {
+
+		return zoneIndex;
+	}
+
+
+	public void setZoneIndex(final int zoneIndex) {
+
+		this.zoneIndex = zoneIndex;
+	}
+
+
+	public int getAisleIndex() {
+
+		return aisleIndex;
+	}
+
+
+	public void setAisleIndex(final int aisleIndex) {
+
+		this.aisleIndex = aisleIndex;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -7,15 +7,18 @@ import java.util.*;
 /**
  * A PickOrder (Kommissionierauftrag) which should be packed in the warehouse with the current assignment of products
  */
-public class PickOrder
-		implements Comparable<PickOrder> {
+public class PickOrder {
 
 	/**
 	 * the unique Id for this order
 	 */
 	private final String orderId;
 	private final List<PickOrderLine> orderLines = new ArrayList<PickOrderLine>();
-	private int replenishmentsNeeded;
+
+	/**
+	 * Dense id (0..count-1) assigned by the PickOrderCollection while loading
+	 */
+	private int id = -1;
 
 
 	/**
@@ -33,20 +36,6 @@ public class PickOrder
 	// ----------------------------------------------------------------------------
 
 
-	public void calcReplenishmentsNeeded(Map<String, Integer> quantityOnHand) {
-
-		replenishmentsNeeded = 0;
-
-		for(PickOrderLine pickOrderLine : getPickOrderLines()) {
-			if(quantityOnHand.get(pickOrderLine.getProductCode()) < pickOrderLine.getQuantity()) {
-				++replenishmentsNeeded;
-			}
-		}
-	}
-
-	// ----------------------------------------------------------------------------
-
-
 	/**
 	 * Get iterator for the PickOrderLines in this order
 	 *
@@ -64,6 +53,18 @@ public class PickOrder
 	}
 
 
+	public int getId() {
+
+		return id;
+	}
+
+
+	public void setId(final int id) {
+
+		this.id = id;
+	}
+
+
 	public int getLineCount() {
 
 		return orderLines.size();
@@ -110,12 +111,5 @@ public class PickOrder
 		return getPickOrderLines().toString();
 	}
 
-
-	@Override
-	public int compareTo(PickOrder pickOrder) {
-
-		return this.replenishmentsNeeded - pickOrder.replenishmentsNeeded;
-	}
-
 	// ----------------------------------------------------------------------------
 }
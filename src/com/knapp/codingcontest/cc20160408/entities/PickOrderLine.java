@@ -22,6 +22,11 @@ public class PickOrderLine {
 	 */
 	private final int quantity;
 
+	/**
+	 * The id of the product to pack, -1 until resolved by the PickOrderCollection (or if unknown)
+	 */
+	private int productId = -1;
+
 	// ----------------------------------------------------------------------------
 
 
@@ -44,6 +49,24 @@ public class PickOrderLine {
 		quantity = Integer.parseInt(dataAsArray[2]);
 	}
 
+
+	/**
+	 * Create a PickorderLine from the already parsed fields
+	 *
+	 * @param orderId     id of the order the line belongs to
+	 * @param productCode code of the product to pack
+	 * @param quantity    number of items
+	 */
+	public PickOrderLine(final String orderId, final String productCode, final int quantity) {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(orderId), "orderId required but is null or whitespace only");
+		Contract.requires(!Contract.isNullOrWhiteSpace(productCode), "productCode required but is null or whitespace only");
+
+		this.orderId = orderId.trim();
+		this.productCode = productCode.trim();
+		this.quantity = quantity;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -64,6 +87,18 @@ public class PickOrderLine {
 		return quantity;
 	}
 
+
+	public int getProductId() {
+
+		return productId;
+	}
+
+
+	public void setProductId(final int productId) {
+
+		this.productId = productId;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -22,6 +22,11 @@ public class Product {
 	 */
 	private final boolean fastMover;
 
+	/**
+	 * Dense id (0..count-1) assigned by the ProductCollection while loading
+	 */
+	private int id = -1;
+
 	// ----------------------------------------------------------------------------
 
 
@@ -41,6 +46,23 @@ public class Product {
 		fastMover = Boolean.parseBoolean(dataAsArray[2]);
 	}
 
+
+	/**
+	 * Create a product from the already parsed fields
+	 *
+	 * @param code                unique code of the product
+	 * @param maxLocationQuantity max. number of items in a pick location
+	 * @param fastMover           whether the item is a fast mover
+	 */
+	public Product(final String code, final int maxLocationQuantity, final boolean fastMover) {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(code), "Code must not be null");
+
+		this.code = code.trim();
+		this.maxLocationQuantity = maxLocationQuantity;
+		this.fastMover = fastMover;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
@@ -61,6 +83,18 @@ public class Product {
 		return maxLocationQuantity;
 	}
 
+
+	public int getId() {
+
+		return id;
+	}
+
+
+	public void setId(final int id) {
+
+		this.id = id;
+	}
+
 	// ----------------------------------------------------------------------------
 
 
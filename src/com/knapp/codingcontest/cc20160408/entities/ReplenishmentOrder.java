@@ -20,11 +20,13 @@ public class ReplenishmentOrder {
 	 * the code of the product that should be replenished
 	 */
 	private final String replenishedProductCode;
+	private final int replenishedProductId;
 
 	/**
 	 * the location to which the replenishment should go
 	 */
 	private final String replenishedLocation;
+	private final int replenishedLocationId;
 
 	/**
 	 * the number of pieces to replenis
@@ -36,21 +38,44 @@ public class ReplenishmentOrder {
 
 	/**
 	 * Create a new replenishment order and assign a generated id
+	 * <p>
+	 * The ids are counted for the whole process, concurrent runs should number their orders themselves
 	 */
 	public ReplenishmentOrder(final Product product, final Location location, final int quantity) {
 
+		this(ReplenishmentOrder.nextOrderNumber(), product, location, quantity);
+	}
+
+
+	/**
+	 * Create a new replenishment order with the id derived from the given number
+	 *
+	 * @param orderNumber number of the order within its run, starting with 1
+	 */
+	public ReplenishmentOrder(final int orderNumber, final Product product, final Location location, final int quantity) {
+
 		Contract.requires(product != null, "product mandatory but is missing");
 		Contract.requires(location != null, "location mandatory but is missing");
 
-		orderId = String.format("ReplenOrder_%d", ReplenishmentOrder.nextOrderId++);
+		orderId = String.format("ReplenOrder_%d", orderNumber);
 		replenishedProductCode = product.getCode();
+		replenishedProductId = product.getId();
 		replenishedLocation = location.getCode();
+		replenishedLocationId = location.getId();
 		replenishedQuantity = quantity;
 	}
 
 	// ----------------------------------------------------------------------------
 
 
+	private static synchronized int nextOrderNumber() {
+
+		return ReplenishmentOrder.nextOrderId++;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
 	public String getOrderId() {
 
 		return orderId;
@@ -63,12 +88,24 @@ public class ReplenishmentOrder {
 	}
 
 
+	public int getReplenishedProductId() {
+
+		return replenishedProductId;
+	}
+
+
 	public String getReplenishedLocation() {
 
 		return replenishedLocation;
 	}
 
 
+	public int getReplenishedLocationId() {
+
+		return replenishedLocationId;
+	}
+
+
 	public int getReplenishedQuantity() {
 
 		return replenishedQuantity;
@@ -0,0 +1,428 @@
+package com.knapp.codingcontest.cc20160408.solution;
+
+import com.knapp.codingcontest.cc20160408.data.PickOrderCollection;
+import com.knapp.codingcontest.cc20160408.data.ProductCollection;
+import com.knapp.codingcontest.cc20160408.data.WarehouseState;
+import com.knapp.codingcontest.cc20160408.entities.Product;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * What-if evaluation of the next replenishment
+ * <p>
+ * The candidates are the first products with a shortfall in the sequence of the order queue (the first one is
+ * the product the greedy strategy would replenish). For every candidate the following ticks are simulated on a
+ * Fork - a copy-on-write view of the stock per product, the location quantities and the pickable orders - with
+ * the candidate replenished first and the greedy rollout policy afterwards. The candidate whose simulation picks
+ * the most orders, weighted by how early they are picked, is chosen; ties go to the earlier candidate.
+ * <p>
+ * Only the product is varied: the quantity is the one the solution replenishes (Solution.calcQuantity) and the
+ * location does not matter to the simulation, which like the scheduler only looks at the quantities per product.
+ * <p>
+ * The candidates are evaluated in parallel on the common pool. The shared state (the warehouse state, the
+ * solution's arrays, the order queue and the collections) is only read while the forks run.
+ */
+class Lookahead {
+
+	private final ProductCollection productCollection;
+	private final PickOrderCollection pickOrderCollection;
+	private final WarehouseState warehouseState;
+
+	/**
+	 * state of the solution, see there
+	 */
+	private final int[] shortLines;
+	private final int[] productLineStart;
+	private final int[] productLineEnd;
+	private final int[] productLines;
+	private final OrderQueue pickOrders;
+
+	private final int candidateCount;
+	private final int depth;
+	private final int rolloutOrderCount;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param candidateCount    number of candidate products to compare
+	 * @param depth             number of ticks simulated per candidate
+	 * @param rolloutOrderCount number of orders (from the front of the queue) the rollout policy replenishes for
+	 */
+	Lookahead(final ProductCollection productCollection,
+	          final PickOrderCollection pickOrderCollection,
+	          final WarehouseState warehouseState,
+	          final int[] shortLines,
+	          final int[] productLineStart,
+	          final int[] productLineEnd,
+	          final int[] productLines,
+	          final OrderQueue pickOrders,
+	          final int candidateCount,
+	          final int depth,
+	          final int rolloutOrderCount) {
+
+		this.productCollection = productCollection;
+		this.pickOrderCollection = pickOrderCollection;
+		this.warehouseState = warehouseState;
+		this.shortLines = shortLines;
+		this.productLineStart = productLineStart;
+		this.productLineEnd = productLineEnd;
+		this.productLines = productLines;
+		this.pickOrders = pickOrders;
+		this.candidateCount = candidateCount;
+		this.depth = depth;
+		this.rolloutOrderCount = rolloutOrderCount;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Choose the product to replenish next
+	 *
+	 * @return the best candidate, null if no open order has a shortfall
+	 *
+	 * @throws IllegalStateException when interrupted while the candidates are evaluated (the interrupt flag is
+	 *                               set again)
+	 */
+	Product next() {
+
+		final List<Integer> candidates = new ArrayList<Integer>();
+		final List<Integer> rolloutOrders = new ArrayList<Integer>();
+		for(int orderId = pickOrders.first();
+		    (orderId >= 0) && ((candidates.size() < candidateCount) || (rolloutOrders.size() < rolloutOrderCount));
+		    orderId = pickOrders.next(orderId)) {
+			if(shortLines[orderId] == 0) {
+				continue;
+			}
+			if(rolloutOrders.size() < rolloutOrderCount) {
+				rolloutOrders.add(orderId);
+			}
+			for(final int position : pickOrderCollection.getOrderLinePositions(orderId)) {
+				final int productId = pickOrderCollection.getLineProducts()[position];
+				if((candidates.size() < candidateCount) &&
+				   (productId >= 0) &&
+				   (pickOrderCollection.getLineQuantities()[position] > warehouseState.getProductQuantity(productId)) &&
+				   !candidates.contains(productId)) {
+					candidates.add(productId);
+				}
+			}
+		}
+
+		if(candidates.isEmpty()) {
+			return null;
+		}
+		if(candidates.size() == 1) {
+			return productCollection.getProduct(candidates.get(0));
+		}
+
+		final Base base = new Base(rolloutOrders);
+		final List<Callable<Long>> evaluations = new ArrayList<Callable<Long>>();
+		for(final int productId : candidates) {
+			evaluations.add(new Callable<Long>() {
+				@Override
+				public Long call() {
+
+					return new Fork(base).evaluate(productId);
+				}
+			});
+		}
+
+		int best = 0;
+		long bestScore = Long.MIN_VALUE;
+		try {
+			final List<Future<Long>> scores = ForkJoinPool.commonPool().invokeAll(evaluations);
+			for(int i = 0; i < scores.size(); ++i) {
+				final long score = scores.get(i).get();
+				if(score > bestScore) {
+					bestScore = score;
+					best = i;
+				}
+			}
+		} catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while evaluating the lookahead candidates", e);
+		} catch(final ExecutionException e) {
+			throw new IllegalStateException("lookahead failed", e.getCause());
+		}
+		return productCollection.getProduct(candidates.get(best));
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * The quantity the solution replenishes for a product (see Solution.calcQuantity)
+	 */
+	private int replenishmentQuantity(final int productId, final int onHand) {
+
+		return Math.min(pickOrderCollection.getCurrentNeededQuantity(productId) - onHand,
+		                productCollection.getProduct(productId).getMaxLocationQuantity());
+	}
+
+
+	/**
+	 * Binary search within the lines of a product, see Solution.findFirstLineAbove
+	 */
+	private int findFirstLineAbove(final int productId, final int quantity) {
+
+		final int[] lineQuantity = pickOrderCollection.getLineQuantities();
+		int low = productLineStart[productId];
+		int high = productLineEnd[productId];
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+			if(lineQuantity[productLines[middle]] <= quantity) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+	/**
+	 * The state all forks of one decision start from, read-only once created
+	 */
+	private final class Base {
+
+		private final int[] noLocations = new int[0];
+
+		/**
+		 * quantities of the locations holding stock, per product id in pick sequence (ascending)
+		 */
+		private final int[][] locationQuantities;
+		private final int freeLocations;
+		private final BitSet pickable = new BitSet();
+		private final int[] rolloutOrders;
+
+
+		private Base(final List<Integer> rolloutOrders) {
+
+			final List<List<Integer>> quantities = new ArrayList<List<Integer>>();
+			for(int productId = 0; productId < productCollection.count(); ++productId) {
+				quantities.add(null);
+			}
+			for(int locationId = 0; locationId < warehouseState.locationCount(); ++locationId) {
+				final int productId = warehouseState.getLocationProduct(locationId);
+				if(productId >= 0) {
+					if(quantities.get(productId) == null) {
+						quantities.set(productId, new ArrayList<Integer>());
+					}
+					quantities.get(productId).add(warehouseState.getLocationQuantity(locationId));
+				}
+			}
+			locationQuantities = new int[productCollection.count()][];
+			for(int productId = 0; productId < locationQuantities.length; ++productId) {
+				final List<Integer> productQuantities = quantities.get(productId);
+				if(productQuantities == null) {
+					locationQuantities[productId] = noLocations;
+					continue;
+				}
+				locationQuantities[productId] = new int[productQuantities.size()];
+				for(int i = 0; i < locationQuantities[productId].length; ++i) {
+					locationQuantities[productId][i] = productQuantities.get(i);
+				}
+				Arrays.sort(locationQuantities[productId]);
+			}
+			freeLocations = warehouseState.freeLocationCount();
+
+			for(int orderId = pickOrders.first(); orderId >= 0; orderId = pickOrders.next(orderId)) {
+				if(shortLines[orderId] == 0) {
+					pickable.set(orderId);
+				}
+			}
+
+			this.rolloutOrders = new int[rolloutOrders.size()];
+			for(int i = 0; i < this.rolloutOrders.length; ++i) {
+				this.rolloutOrders[i] = rolloutOrders.get(i);
+			}
+		}
+	}
+
+	/**
+	 * Copy-on-write view of the state of one simulated future: only the values that differ from the base are stored
+	 */
+	private final class Fork {
+
+		private final Base base;
+		private final Map<Integer, Integer> stock = new HashMap<Integer, Integer>();
+		private final Map<Integer, int[]> locationQuantities = new HashMap<Integer, int[]>();
+		private final Map<Integer, Integer> needed = new HashMap<Integer, Integer>();
+		private final BitSet pickable;
+		private final BitSet picked = new BitSet();
+		private int freeLocations;
+
+
+		private Fork(final Base base) {
+
+			this.base = base;
+			pickable = (BitSet) base.pickable.clone();
+			freeLocations = base.freeLocations;
+		}
+
+
+		/**
+		 * Simulate the following ticks starting with the replenishment of the given product
+		 *
+		 * @return sum over the picked orders of the number of simulated ticks left when they were picked
+		 */
+		private long evaluate(final int productId) {
+
+			long score = 0;
+			for(int tick = 0; tick < depth; ++tick) {
+				final int replenished = (tick == 0) ? productId : rolloutProduct();
+				if(replenished >= 0) {
+					replenish(replenished);
+				}
+				if(pick()) {
+					score += depth - tick;
+				}
+			}
+			return score;
+		}
+
+		// ............................................................................
+
+
+		/**
+		 * The greedy choice among the rollout orders: the first short product of the order with the
+		 * fewest (but some) replenishments needed
+		 */
+		private int rolloutProduct() {
+
+			int bestOrder = -1;
+			int bestNeeded = Integer.MAX_VALUE;
+			for(final int orderId : base.rolloutOrders) {
+				if(isOpen(orderId)) {
+					final int orderNeeded = needed(orderId);
+					if((orderNeeded > 0) && (orderNeeded < bestNeeded)) {
+						bestNeeded = orderNeeded;
+						bestOrder = orderId;
+					}
+				}
+			}
+			if(bestOrder < 0) {
+				return -1;
+			}
+			for(final int position : pickOrderCollection.getOrderLinePositions(bestOrder)) {
+				final int productId = pickOrderCollection.getLineProducts()[position];
+				if((productId >= 0) && (pickOrderCollection.getLineQuantities()[position] > stock(productId))) {
+					return productId;
+				}
+			}
+			return -1;
+		}
+
+
+		private void replenish(final int productId) {
+
+			final int quantity = replenishmentQuantity(productId, stock(productId));
+			if((freeLocations == 0) || (quantity <= 0)) {
+				return;
+			}
+			freeLocations--;
+
+			final int[] quantities = locations(productId);
+			final int[] newQuantities = Arrays.copyOf(quantities, quantities.length + 1);
+			newQuantities[quantities.length] = quantity;
+			Arrays.sort(newQuantities);
+			locationQuantities.put(productId, newQuantities);
+			changeStock(productId, quantity);
+		}
+
+
+		/**
+		 * Pick the first pickable order (in the sequence of the collection) like the scheduler does
+		 *
+		 * @return whether an order was picked
+		 */
+		private boolean pick() {
+
+			final int orderId = pickable.nextSetBit(0);
+			if(orderId < 0) {
+				return false;
+			}
+			pickable.clear(orderId);
+			picked.set(orderId);
+
+			for(final int position : pickOrderCollection.getOrderLinePositions(orderId)) {
+				final int productId = pickOrderCollection.getLineProducts()[position];
+				final int quantity = pickOrderCollection.getLineQuantities()[position];
+
+				// take from the smallest locations first, emptied locations become free
+				final int[] quantities = locations(productId).clone();
+				int emptied = 0;
+				int remaining = quantity;
+				while((remaining > 0) && (emptied < quantities.length)) {
+					final int taken = Math.min(remaining, quantities[emptied]);
+					quantities[emptied] -= taken;
+					remaining -= taken;
+					if(quantities[emptied] == 0) {
+						emptied++;
+					}
+				}
+				freeLocations += emptied;
+				locationQuantities.put(productId, Arrays.copyOfRange(quantities, emptied, quantities.length));
+
+				changeStock(productId, -quantity);
+			}
+			return true;
+		}
+
+
+		private void changeStock(final int productId, final int delta) {
+
+			final int oldQuantity = stock(productId);
+			final int newQuantity = oldQuantity + delta;
+			stock.put(productId, newQuantity);
+
+			final int from = findFirstLineAbove(productId, Math.min(oldQuantity, newQuantity));
+			final int to = findFirstLineAbove(productId, Math.max(oldQuantity, newQuantity));
+			final int[] lineOrder = pickOrderCollection.getLineOrders();
+			for(int i = from; i < to; ++i) {
+				final int orderId = lineOrder[productLines[i]];
+				if(isOpen(orderId)) {
+					final int orderNeeded = needed(orderId) + ((delta < 0) ? 1 : -1);
+					needed.put(orderId, orderNeeded);
+					pickable.set(orderId, orderNeeded == 0);
+				}
+			}
+		}
+
+		// ............................................................................
+
+
+		private boolean isOpen(final int orderId) {
+
+			return warehouseState.isOpen(orderId) && !picked.get(orderId);
+		}
+
+
+		private int stock(final int productId) {
+
+			final Integer quantity = stock.get(productId);
+			return (quantity != null) ? quantity : warehouseState.getProductQuantity(productId);
+		}
+
+
+		private int needed(final int orderId) {
+
+			final Integer orderNeeded = needed.get(orderId);
+			return (orderNeeded != null) ? orderNeeded : shortLines[orderId];
+		}
+
+
+		private int[] locations(final int productId) {
+
+			final int[] quantities = locationQuantities.get(productId);
+			return (quantities != null) ? quantities : base.locationQuantities[productId];
+		}
+	}
+}
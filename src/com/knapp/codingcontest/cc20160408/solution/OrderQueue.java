@@ -0,0 +1,484 @@
+package com.knapp.codingcontest.cc20160408.solution;
+
+import com.knapp.codingcontest.cc20160408.util.Contract;
+
+import java.util.Arrays;
+
+/**
+ * Bucket queue of pick orders (by id) ranked by their number of replenishments needed
+ * <p>
+ * The queue behaves exactly like a list that is stable-sorted by the key before every read:
+ * orders with equal keys keep the relative sequence they had after the previous read.
+ * Key changes are collected and applied in one batch when the queue is read next, which
+ * costs O(c log c) for c changed orders instead of a sort of all orders (a merge sort of the
+ * order ids by (key, label), so the ids are not boxed).
+ * <p>
+ * Like the WarehouseState, the queue journals its changes after mark() and restores the exact
+ * sequence of the orders with rollback(mark), e.g. after a what-if change of the stock.
+ */
+class OrderQueue {
+
+	private static final int LINKED = 0;
+	private static final int UNLINKED = 1;
+	private static final int QUEUED = 2;
+	private static final int DEQUEUED = 3;
+	private static final int JOURNAL_STRIDE = 6;
+
+	private final int[] key;
+	private final long[] label;
+	private final int[] next;
+	private final int[] previous;
+	private final boolean[] queued;
+
+	/**
+	 * first and last order per key, -1 for empty buckets
+	 */
+	private final int[] head;
+	private final int[] tail;
+
+	/**
+	 * orders whose key changed since the last read, with the key they will be moved to
+	 */
+	private final int[] newKey;
+	private final boolean[] changed;
+	private int[] pending = new int[16];
+	private int pendingCount = 0;
+	/**
+	 * the orders applyChanges moves, and the buffer its merge sort alternates with
+	 */
+	private int[] moved = new int[16];
+	private int[] merged = new int[16];
+
+	/**
+	 * entries of JOURNAL_STRIDE longs: type, order id, and for UNLINKED the key, label, previous and next order
+	 */
+	private long[] journal = new long[64 * OrderQueue.JOURNAL_STRIDE];
+	private int journalSize = 0;
+	private int markDepth = 0;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Create an empty queue
+	 *
+	 * @param idCount number of order ids (ids are 0..idCount-1)
+	 * @param maxKey  the largest key that will be used
+	 */
+	OrderQueue(final int idCount, final int maxKey) {
+
+		key = new int[idCount];
+		label = new long[idCount];
+		next = new int[idCount];
+		previous = new int[idCount];
+		queued = new boolean[idCount];
+		newKey = new int[idCount];
+		changed = new boolean[idCount];
+
+		head = new int[maxKey + 1];
+		tail = new int[maxKey + 1];
+		Arrays.fill(head, -1);
+		Arrays.fill(tail, -1);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Add an order behind all orders with the same key
+	 *
+	 * @param orderId  id of the order
+	 * @param orderKey key of the order
+	 */
+	void add(final int orderId, final int orderKey) {
+
+		Contract.requires(!queued[orderId], "order already queued");
+
+		if(markDepth > 0) {
+			record(OrderQueue.QUEUED, orderId);
+		}
+		queued[orderId] = true;
+		key[orderId] = orderKey;
+		append(orderId);
+	}
+
+
+	/**
+	 * Remove an order from the queue
+	 *
+	 * @param orderId id of the order
+	 */
+	void remove(final int orderId) {
+
+		if(queued[orderId]) {
+			if(markDepth > 0) {
+				record(OrderQueue.DEQUEUED, orderId);
+			}
+			queued[orderId] = false;
+			changed[orderId] = false;
+			unlink(orderId);
+		}
+	}
+
+
+	/**
+	 * Change the key of an order, the order is moved when the queue is read next
+	 *
+	 * @param orderId  id of the order
+	 * @param orderKey new key of the order
+	 */
+	void update(final int orderId, final int orderKey) {
+
+		if(!queued[orderId]) {
+			return;
+		}
+		if(!changed[orderId]) {
+			changed[orderId] = true;
+			if(pendingCount == pending.length) {
+				pending = Arrays.copyOf(pending, pendingCount * 2);
+			}
+			pending[pendingCount++] = orderId;
+		}
+		newKey[orderId] = orderKey;
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * Apply the collected key changes and start journaling changes
+	 *
+	 * @return the mark to pass to rollback or release
+	 */
+	int mark() {
+
+		applyChanges();
+		markDepth++;
+		return journalSize;
+	}
+
+
+	/**
+	 * Restore the sequence of the orders at the time the mark was taken and end the mark
+	 * <p>
+	 * Key changes that are still pending stay pending, an order whose key source has been rolled
+	 * back as well is not moved when they are applied.
+	 *
+	 * @param mark value returned by mark()
+	 */
+	void rollback(final int mark) {
+
+		Contract.requires((markDepth > 0) && (mark >= 0) && (mark <= journalSize), "invalid mark");
+
+		while(journalSize > mark) {
+			journalSize -= OrderQueue.JOURNAL_STRIDE;
+			final int orderId = (int) journal[journalSize + 1];
+			switch((int) journal[journalSize]) {
+				case OrderQueue.LINKED:
+					detach(orderId);
+					break;
+				case OrderQueue.UNLINKED:
+					key[orderId] = (int) journal[journalSize + 2];
+					label[orderId] = journal[journalSize + 3];
+					attach(orderId, (int) journal[journalSize + 4], (int) journal[journalSize + 5]);
+					break;
+				case OrderQueue.QUEUED:
+					queued[orderId] = false;
+					changed[orderId] = false;
+					break;
+				default:
+					queued[orderId] = true;
+					break;
+			}
+		}
+		endMark();
+	}
+
+
+	/**
+	 * Keep the changes since the mark was taken and end the mark
+	 *
+	 * @param mark value returned by mark()
+	 */
+	void release(final int mark) {
+
+		Contract.requires((markDepth > 0) && (mark >= 0) && (mark <= journalSize), "invalid mark");
+
+		endMark();
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * The first order of the queue
+	 *
+	 * @return id of the order with the lowest key, -1 if the queue is empty
+	 */
+	int first() {
+
+		return first(0);
+	}
+
+
+	/**
+	 * The first order of the queue with at least the given key
+	 *
+	 * @param minKey the lowest key to consider
+	 *
+	 * @return id of the order, -1 if there is no such order
+	 */
+	int first(final int minKey) {
+
+		applyChanges();
+		return firstFrom(minKey);
+	}
+
+
+	/**
+	 * The order following the given one
+	 * <p>
+	 * Only valid while the keys are not changed
+	 *
+	 * @param orderId id of a queued order
+	 *
+	 * @return id of the next order, -1 at the end of the queue
+	 */
+	int next(final int orderId) {
+
+		return (next[orderId] >= 0) ? next[orderId] : firstFrom(key[orderId] + 1);
+	}
+
+
+	/**
+	 * The key an order is currently ranked by
+	 *
+	 * @param orderId id of a queued order
+	 */
+	int getKey(final int orderId) {
+
+		return key[orderId];
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private int firstFrom(final int fromKey) {
+
+		for(int k = fromKey; k < head.length; ++k) {
+			if(head[k] >= 0) {
+				return head[k];
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Move all changed orders to their new buckets
+	 * <p>
+	 * In the stable sort that is emulated, the orders entering a bucket from a lower key were in
+	 * front of all its members and the ones coming from a higher key were behind them, both in the
+	 * sequence of (old key, position) - so they are prepended resp. appended in that sequence.
+	 */
+	private void applyChanges() {
+
+		if(pendingCount == 0) {
+			return;
+		}
+
+		if(moved.length < pendingCount) {
+			moved = new int[pending.length];
+			merged = new int[pending.length];
+		}
+		int movedCount = 0;
+		for(int i = 0; i < pendingCount; ++i) {
+			final int orderId = pending[i];
+			if(changed[orderId]) {
+				changed[orderId] = false;
+				if(newKey[orderId] != key[orderId]) {
+					moved[movedCount++] = orderId;
+				}
+			}
+		}
+		pendingCount = 0;
+
+		sortMoved(movedCount);
+
+		for(int i = 0; i < movedCount; ++i) {
+			unlink(moved[i]);
+		}
+		for(int i = movedCount - 1; i >= 0; --i) {
+			final int orderId = moved[i];
+			if(key[orderId] < newKey[orderId]) {
+				key[orderId] = newKey[orderId];
+				prepend(orderId);
+			}
+		}
+		for(int i = 0; i < movedCount; ++i) {
+			final int orderId = moved[i];
+			if(key[orderId] > newKey[orderId]) {
+				key[orderId] = newKey[orderId];
+				append(orderId);
+			}
+		}
+	}
+
+	/**
+	 * Bottom-up merge sort of moved[0..count-1] by (key, label), i.e. by position in the queue
+	 */
+	private void sortMoved(final int count) {
+
+		for(int width = 1; width < count; width *= 2) {
+			for(int low = 0; low < count; low += 2 * width) {
+				final int middle = Math.min(low + width, count);
+				final int high = Math.min(low + 2 * width, count);
+				int left = low;
+				int right = middle;
+				for(int i = low; i < high; ++i) {
+					if((left < middle) && ((right == high) || precedes(moved[left], moved[right]))) {
+						merged[i] = moved[left++];
+					} else {
+						merged[i] = moved[right++];
+					}
+				}
+			}
+			final int[] sorted = merged;
+			merged = moved;
+			moved = sorted;
+		}
+	}
+
+
+	private boolean precedes(final int orderId1, final int orderId2) {
+
+		if(key[orderId1] != key[orderId2]) {
+			return key[orderId1] < key[orderId2];
+		}
+		return label[orderId1] < label[orderId2];
+	}
+
+	// ............................................................................
+
+
+	private void append(final int orderId) {
+
+		final int k = key[orderId];
+		next[orderId] = -1;
+		previous[orderId] = tail[k];
+		if(tail[k] >= 0) {
+			label[orderId] = label[tail[k]] + 1;
+			next[tail[k]] = orderId;
+		} else {
+			label[orderId] = 0;
+			head[k] = orderId;
+		}
+		tail[k] = orderId;
+		if(markDepth > 0) {
+			record(OrderQueue.LINKED, orderId);
+		}
+	}
+
+
+	private void prepend(final int orderId) {
+
+		final int k = key[orderId];
+		previous[orderId] = -1;
+		next[orderId] = head[k];
+		if(head[k] >= 0) {
+			label[orderId] = label[head[k]] - 1;
+			previous[head[k]] = orderId;
+		} else {
+			label[orderId] = 0;
+			tail[k] = orderId;
+		}
+		head[k] = orderId;
+		if(markDepth > 0) {
+			record(OrderQueue.LINKED, orderId);
+		}
+	}
+
+
+	private void unlink(final int orderId) {
+
+		if(markDepth > 0) {
+			record(OrderQueue.UNLINKED, orderId, key[orderId], label[orderId], previous[orderId], next[orderId]);
+		}
+		detach(orderId);
+	}
+
+
+	/**
+	 * Take an order out of its bucket without journaling
+	 */
+	private void detach(final int orderId) {
+
+		final int k = key[orderId];
+		if(previous[orderId] >= 0) {
+			next[previous[orderId]] = next[orderId];
+		} else {
+			head[k] = next[orderId];
+		}
+		if(next[orderId] >= 0) {
+			previous[next[orderId]] = previous[orderId];
+		} else {
+			tail[k] = previous[orderId];
+		}
+	}
+
+
+	/**
+	 * Put an order back between the orders it was unlinked from, without journaling
+	 */
+	private void attach(final int orderId, final int previousId, final int nextId) {
+
+		final int k = key[orderId];
+		previous[orderId] = previousId;
+		next[orderId] = nextId;
+		if(previousId >= 0) {
+			next[previousId] = orderId;
+		} else {
+			head[k] = orderId;
+		}
+		if(nextId >= 0) {
+			previous[nextId] = orderId;
+		} else {
+			tail[k] = orderId;
+		}
+	}
+
+
+	private void endMark() {
+
+		markDepth--;
+		if(markDepth == 0) {
+			journalSize = 0;
+		}
+	}
+
+
+	private void record(final int type, final int orderId) {
+
+		record(type, orderId, 0, 0, -1, -1);
+	}
+
+
+	private void record(final int type,
+	                    final int orderId,
+	                    final int orderKey,
+	                    final long orderLabel,
+	                    final int previousId,
+	                    final int nextId) {
+
+		if((journalSize + OrderQueue.JOURNAL_STRIDE) > journal.length) {
+			journal = Arrays.copyOf(journal, journal.length * 2);
+		}
+		journal[journalSize] = type;
+		journal[journalSize + 1] = orderId;
+		journal[journalSize + 2] = orderKey;
+		journal[journalSize + 3] = orderLabel;
+		journal[journalSize + 4] = previousId;
+		journal[journalSize + 5] = nextId;
+		journalSize += OrderQueue.JOURNAL_STRIDE;
+	}
+}
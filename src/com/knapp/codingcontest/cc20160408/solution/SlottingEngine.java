@@ -0,0 +1,372 @@
+package com.knapp.codingcontest.cc20160408.solution;
+
+import com.knapp.codingcontest.cc20160408.data.LocationCollection;
+import com.knapp.codingcontest.cc20160408.data.PickOrderCollection;
+import com.knapp.codingcontest.cc20160408.data.ProductCollection;
+import com.knapp.codingcontest.cc20160408.data.WarehouseState;
+import com.knapp.codingcontest.cc20160408.entities.Location;
+import com.knapp.codingcontest.cc20160408.entities.PickOrder;
+import com.knapp.codingcontest.cc20160408.entities.Product;
+
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Demand driven ABC slotting: decides where a replenishment goes and whether a product may take another location
+ * <p>
+ * The products are ranked by the number of open lines and then the quantity needed (counted in parallel over
+ * the open orders); the first share of the products with demand is class A, fast movers ranked within twice
+ * that share are promoted to A as well. The next products up to B_SHARE more are class B, all others C.
+ * <p>
+ * A share of the locations is reserved for class A, but never more than the A products still need for their
+ * open demand: the other products only get a new location while more locations are free. A replenishment goes
+ * onto a location of the same product with enough room first; a new location for an A product is taken in an
+ * aisle that already holds the product, otherwise in the least loaded aisle, so A products can hold as many
+ * locations as their demand needs.
+ */
+class SlottingEngine {
+
+	/**
+	 * Class of a product by its demand
+	 */
+	enum ProductClass {
+		A,
+		B,
+		C
+	}
+
+	// ----------------------------------------------------------------------------
+
+	/**
+	 * share of the products with demand in class B (after the ones in class A)
+	 */
+	static final double B_SHARE = 0.3;
+
+	/**
+	 * number of open orders counted per task of the pre-pass
+	 */
+	private static final int ORDERS_PER_TASK = 1024;
+
+	// ----------------------------------------------------------------------------
+
+	private final ProductCollection productCollection;
+	private final PickOrderCollection pickOrderCollection;
+	private final LocationCollection locationCollection;
+	private final WarehouseState warehouseState;
+
+	private final double aShare;
+	private final int maxReservedLocations;
+
+	/**
+	 * locations currently held back for class A, see update
+	 */
+	private int reservedLocations;
+
+	/**
+	 * locations the class A products need for their shortfall, in total and per product id
+	 */
+	private long neededLocations = 0;
+	private final int[] productNeededLocations;
+
+	/**
+	 * the class A products whose stock or demand changed since the last update, without duplicates
+	 */
+	private final int[] changedProducts;
+	private final boolean[] changed;
+	private int changedCount = 0;
+
+	/**
+	 * class and rank (0 = most demand) per product id
+	 */
+	private final ProductClass[] productClass;
+	private final int[] productRank;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param aShare  share of the products with demand that are class A
+	 * @param reserve share of the locations reserved for class A products
+	 */
+	SlottingEngine(final ProductCollection productCollection,
+	               final PickOrderCollection pickOrderCollection,
+	               final LocationCollection locationCollection,
+	               final WarehouseState warehouseState,
+	               final double aShare,
+	               final double reserve) {
+
+		this.productCollection = productCollection;
+		this.pickOrderCollection = pickOrderCollection;
+		this.locationCollection = locationCollection;
+		this.warehouseState = warehouseState;
+		this.aShare = aShare;
+
+		maxReservedLocations = (int) Math.round(reserve * locationCollection.count());
+		productClass = new ProductClass[productCollection.count()];
+		productRank = new int[productCollection.count()];
+		productNeededLocations = new int[productCollection.count()];
+		changedProducts = new int[productCollection.count()];
+		changed = new boolean[productCollection.count()];
+		classify();
+
+		warehouseState.addListener(new WarehouseState.Listener() {
+			@Override
+			public void productQuantityChanged(final int productId, final int oldQuantity, final int newQuantity) {
+
+				productChanged(productId);
+			}
+
+
+			@Override
+			public void orderChanged(final int orderId, final boolean open) {
+
+				final int[] lineProduct = pickOrderCollection.getLineProducts();
+				for(final int position : pickOrderCollection.getOrderLinePositions(orderId)) {
+					if(lineProduct[position] >= 0) {
+						productChanged(lineProduct[position]);
+					}
+				}
+			}
+		});
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Rank and classify the products by the current demand of the open orders
+	 */
+	void classify() {
+
+		final int productCount = productCollection.count();
+		final long[] demand = countDemand();
+
+		final Integer[] ranked = new Integer[productCount];
+		int withDemand = 0;
+		for(int productId = 0; productId < productCount; ++productId) {
+			ranked[productId] = productId;
+			if(demand[productId] > 0) {
+				++withDemand;
+			}
+		}
+		// demand holds the lines in the high and the quantity in the low 32 bits, so it compares by both
+		Arrays.sort(ranked, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer product1, final Integer product2) {
+
+				if(demand[product1] != demand[product2]) {
+					return Long.compare(demand[product2], demand[product1]);
+				}
+				final boolean fastMover1 = productCollection.getProduct(product1).isFastMover();
+				final boolean fastMover2 = productCollection.getProduct(product2).isFastMover();
+				if(fastMover1 != fastMover2) {
+					return fastMover1 ? -1 : 1;
+				}
+				return Integer.compare(product1, product2);
+			}
+		});
+
+		final int aCount = (int) Math.ceil(aShare * withDemand);
+		final int bEnd = Math.min(withDemand, aCount + (int) Math.ceil(SlottingEngine.B_SHARE * withDemand));
+		for(int rank = 0; rank < productCount; ++rank) {
+			final int productId = ranked[rank];
+			productRank[productId] = rank;
+			if((rank < aCount) ||
+			   ((rank < Math.min(withDemand, 2 * aCount)) && productCollection.getProduct(productId).isFastMover())) {
+				productClass[productId] = ProductClass.A;
+			} else if(rank < bEnd) {
+				productClass[productId] = ProductClass.B;
+			} else {
+				productClass[productId] = ProductClass.C;
+			}
+		}
+
+		neededLocations = 0;
+		for(int productId = 0; productId < productCount; ++productId) {
+			productNeededLocations[productId] = (productClass[productId] == ProductClass.A) ? neededLocations(productId) : 0;
+			neededLocations += productNeededLocations[productId];
+			changed[productId] = false;
+		}
+		changedCount = 0;
+		reservedLocations = (int) Math.min(neededLocations, maxReservedLocations);
+	}
+
+
+	/**
+	 * Recalculate the reserved locations from the shortfall of the class A products, to be called once per
+	 * tick before canReplenish and findLocation
+	 * <p>
+	 * Only the products whose stock or open orders changed since the last update are recalculated: the
+	 * warehouse state reports these changes before the pick order collection is updated, so the shortfall
+	 * is read here, when both agree again.
+	 */
+	void update() {
+
+		for(int i = 0; i < changedCount; ++i) {
+			final int productId = changedProducts[i];
+			changed[productId] = false;
+			final int productNeeded = neededLocations(productId);
+			neededLocations += productNeeded - productNeededLocations[productId];
+			productNeededLocations[productId] = productNeeded;
+		}
+		changedCount = 0;
+		reservedLocations = (int) Math.min(neededLocations, maxReservedLocations);
+	}
+
+
+	ProductClass getProductClass(final Product product) {
+
+		return productClass[product.getId()];
+	}
+
+
+	/**
+	 * @return rank of the product by demand when it was classified, 0 for the most demand
+	 */
+	int getRank(final Product product) {
+
+		return productRank[product.getId()];
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * Whether the product can be replenished with the quantity now, without using the reserved locations
+	 * for a product that is not class A
+	 */
+	boolean canReplenish(final Product product, final int quantity) {
+
+		return (productClass[product.getId()] == ProductClass.A) ||
+		       (findOwnLocation(product, quantity) != null) ||
+		       (locationCollection.freeCount() > reservedLocations);
+	}
+
+
+	/**
+	 * The location for a replenishment
+	 *
+	 * @param product  the product to replenish
+	 * @param quantity pcs to replenish
+	 *
+	 * @return the location, null if there is none the product may use
+	 */
+	Location findLocation(final Product product, final int quantity) {
+
+		final Location own = findOwnLocation(product, quantity);
+		if(own != null) {
+			return own;
+		}
+
+		if(productClass[product.getId()] != ProductClass.A) {
+			return (locationCollection.freeCount() > reservedLocations) ? locationCollection.findFirstFree() : null;
+		}
+
+		for(final int aisle : locationCollection.getAislesHoldingProduct(product.getId())) {
+			final Location location = locationCollection.findFreeInAisle(aisle);
+			if(location != null) {
+				return location;
+			}
+		}
+		final int aisle = locationCollection.findLeastLoadedAisle();
+		return (aisle >= 0) ? locationCollection.findFreeInAisle(aisle) : null;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Register a change of the stock or the demand of a product for the next update
+	 */
+	private void productChanged(final int productId) {
+
+		if((productClass[productId] == ProductClass.A) && !changed[productId]) {
+			changed[productId] = true;
+			changedProducts[changedCount++] = productId;
+		}
+	}
+
+
+	/**
+	 * The locations a product needs for its shortfall
+	 */
+	private int neededLocations(final int productId) {
+
+		final int shortfall = pickOrderCollection.getCurrentNeededQuantity(productId) -
+		                      warehouseState.getProductQuantity(productId);
+		if(shortfall <= 0) {
+			return 0;
+		}
+		final int maxLocationQuantity = Math.max(1, productCollection.getProduct(productId).getMaxLocationQuantity());
+		return (shortfall + maxLocationQuantity - 1) / maxLocationQuantity;
+	}
+
+
+	/**
+	 * A location already holding the product with room for the quantity
+	 */
+	private Location findOwnLocation(final Product product, final int quantity) {
+
+		for(final Location location : locationCollection.getLocationsOfProduct(product.getId())) {
+			if((location.getQuantityOnHand() + quantity) <= product.getMaxLocationQuantity()) {
+				return location;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * Count the open lines and the needed quantity per product, the open orders are split into tasks that
+	 * run in parallel
+	 *
+	 * @return lines (high 32 bits) and quantity (low 32 bits) per product id
+	 */
+	private long[] countDemand() {
+
+		final List<PickOrder> orders = new ArrayList<PickOrder>(pickOrderCollection.getPickOrders());
+		final int[] lineProduct = pickOrderCollection.getLineProducts();
+		final int[] lineQuantity = pickOrderCollection.getLineQuantities();
+		final int productCount = productCollection.count();
+
+		final List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+		for(int start = 0; start < orders.size(); start += SlottingEngine.ORDERS_PER_TASK) {
+			final int from = start;
+			final int to = Math.min(orders.size(), start + SlottingEngine.ORDERS_PER_TASK);
+			tasks.add(new Callable<long[]>() {
+				@Override
+				public long[] call() {
+
+					final long[] demand = new long[productCount];
+					for(int i = from; i < to; ++i) {
+						for(final int position : pickOrderCollection.getOrderLinePositions(orders.get(i).getId())) {
+							if(lineProduct[position] >= 0) {
+								demand[lineProduct[position]] += (1L << 32) + lineQuantity[position];
+							}
+						}
+					}
+					return demand;
+				}
+			});
+		}
+
+		final long[] demand = new long[productCount];
+		try {
+			for(final Future<long[]> part : ForkJoinPool.commonPool().invokeAll(tasks)) {
+				final long[] partDemand = part.get();
+				for(int productId = 0; productId < productCount; ++productId) {
+					demand[productId] += partDemand[productId];
+				}
+			}
+		} catch(final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while counting the demand", e);
+		} catch(final ExecutionException e) {
+			throw new IllegalStateException("counting the demand failed", e.getCause());
+		}
+		return demand;
+	}
+}
@@ -4,6 +4,7 @@ import com.knapp.codingcontest.cc20160408.Input;
 import com.knapp.codingcontest.cc20160408.data.LocationCollection;
 import com.knapp.codingcontest.cc20160408.data.PickOrderCollection;
 import com.knapp.codingcontest.cc20160408.data.ProductCollection;
+import com.knapp.codingcontest.cc20160408.data.WarehouseState;
 import com.knapp.codingcontest.cc20160408.entities.*;
 import com.knapp.codingcontest.cc20160408.util.Contract;
 
@@ -33,13 +34,97 @@ public class Solution {
 	 * Note: the pickOrderCollection is always up to date when GetNextReplenishmentOrder is called
 	 */
 	private final PickOrderCollection pickOrderCollection;
+	/**
+	 * lookahead and slotting settings
+	 */
+	private final SolutionParameters parameters;
+	/**
+	 * stock and open orders, the same instance the Scheduler updates, null until the Scheduler attaches
+	 */
+	private WarehouseState warehouseState = null;
 
 	// ----------------------------------------------------------------------------
 
 	public static final boolean DEBUG = false;
 
-	private Map<String, Integer> quantityOnHand;
-	private List<PickOrder> pickOrders;
+	/**
+	 * Compare the incrementally maintained shortLines with a full recount before every decision
+	 */
+	public static final boolean CHECK_REPLENISHMENTS_NEEDED = false;
+
+	/**
+	 * Number of candidate products compared by simulating the next LOOKAHEAD_DEPTH ticks, 0 for the plain greedy choice
+	 * (defaults of the SolutionParameters)
+	 */
+	public static final int LOOKAHEAD_CANDIDATES = 0;
+	public static final int LOOKAHEAD_DEPTH = 16;
+	public static final int LOOKAHEAD_ROLLOUT_ORDERS = 32;
+
+	/**
+	 * Choose the locations with the SlottingEngine (ABC classes by demand) instead of the first free one
+	 * (defaults of the SolutionParameters)
+	 */
+	public static final boolean SLOTTING = false;
+	public static final double SLOTTING_A_SHARE = 0.2;
+	public static final double SLOTTING_RESERVE = 0.1;
+
+	/**
+	 * Rank the orders by their exact number of short lines after every change of the stock instead of only after
+	 * a pick of one of their products (default of the SolutionParameters); changes the replenishments
+	 */
+	public static final boolean EXACT_RANKING = false;
+
+	/**
+	 * open pick orders ranked by replenishmentsNeeded
+	 */
+	private OrderQueue pickOrders;
+	/**
+	 * number of short lines per order id when the order was last ranked: at the start and whenever one of its
+	 * products has been picked, like in the original solution (replenishments do not rank the orders again),
+	 * or with every change of shortLines for the exact ranking
+	 */
+	private int[] replenishmentsNeeded;
+	/**
+	 * number of lines per order id that need more than the quantity on hand
+	 */
+	private int[] shortLines;
+	/**
+	 * line positions of the open orders per product id, sorted by line quantity:
+	 * the lines of product p are productLines[productLineStart[p] .. productLineEnd[p] - 1]
+	 * <p>
+	 * Lines of picked orders are skipped and compacted away once they make up half of a product's lines
+	 */
+	private int[] productLineStart;
+	private int[] productLineEnd;
+	private int[] productLines;
+	/**
+	 * number of lines of picked orders per product id that are still in productLines
+	 */
+	private int[] closedLines;
+	/**
+	 * whether the line (by position) is in productLines
+	 */
+	private boolean[] lineIndexed;
+	/**
+	 * products of the picked orders handlePickedOrders has already ranked the orders for, empty otherwise
+	 */
+	private final BitSet rankedProducts = new BitSet();
+	/**
+	 * what-if evaluation of the next replenishment, null if disabled
+	 */
+	private Lookahead lookahead = null;
+	/**
+	 * location choice, null for the first free location
+	 */
+	private SlottingEngine slotting = null;
+	/**
+	 * number of the next replenishment order, counted per solution so concurrent runs get the same ids
+	 */
+	private int nextReplenishmentOrderNumber = 1;
+	/**
+	 * locations already used by the batch getNextReplenishmentOrders is planning, empty otherwise
+	 */
+	private final BitSet plannedLocations = new BitSet();
 
 	/**
 	 * Create the solution instance74
@@ -50,7 +135,20 @@ public class Solution {
 	 */
 	public Solution(final Input input) {
 
+		this(input, new SolutionParameters());
+	}
+
+
+	/**
+	 * Create the solution instance with its own parameters
+	 *
+	 * @param input
+	 * @param parameters
+	 */
+	public Solution(final Input input, final SolutionParameters parameters) {
+
 		Contract.requires(input != null, "illegal argument");
+		Contract.requires(parameters != null, "illegal argument");
 
 		Contract.requires(input.getLocationCollection() != null, "illegal argument");
 		Contract.requires(input.getLocationCollection().count() > 0, "illegal argument");
@@ -68,18 +166,222 @@ public class Solution {
 		locationCollection = input.getLocationCollection();
 		productCollection = input.getProductCollection();
 		pickOrderCollection = input.getPickOrderCollection();
+		this.parameters = parameters;
 		// Your code goes here
 
 		// Prepare custom Collections
-		quantityOnHand = new HashMap<>();
-		for(Product product : productCollection.getProducts()) {
-			quantityOnHand.put(product.getCode(), 0);
+		prepareProductLines();
+	}
+
+
+	/**
+	 * Observe the warehouse state of the Scheduler that runs this solution
+	 * <p>
+	 * Called by Scheduler.run before the first tick; replenishments and picks reach the solution as
+	 * changes of this state
+	 *
+	 * @param warehouseState the state the Scheduler updates
+	 *
+	 * @throws IllegalStateException if the solution has already been attached to a Scheduler
+	 */
+	public void attach(final WarehouseState warehouseState) {
+
+		Contract.requires(warehouseState != null, "illegal argument");
+
+		if(this.warehouseState != null) {
+			throw new IllegalStateException("the solution has already been attached to a scheduler");
+		}
+		this.warehouseState = warehouseState;
+
+		int maxLineCount = 0;
+		shortLines = new int[pickOrderCollection.idCount()];
+		for(PickOrder pickOrder : pickOrderCollection.getPickOrders()) {
+			maxLineCount = Math.max(maxLineCount, pickOrder.getLineCount());
+			for(PickOrderLine pickOrderLine : pickOrder.getPickOrderLines()) {
+				if(pickOrderLine.getProductId() < 0 ||
+				   warehouseState.getProductQuantity(pickOrderLine.getProductId()) < pickOrderLine.getQuantity()) {
+					++shortLines[pickOrder.getId()];
+				}
+			}
 		}
+		replenishmentsNeeded = shortLines.clone();
 
-		pickOrders = new LinkedList<>(pickOrderCollection.getPickOrders());
+		pickOrders = new OrderQueue(pickOrderCollection.idCount(), maxLineCount);
 		for(PickOrder pickOrder : pickOrderCollection.getPickOrders()) {
-			pickOrder.calcReplenishmentsNeeded(quantityOnHand);
+			pickOrders.add(pickOrder.getId(), replenishmentsNeeded[pickOrder.getId()]);
+		}
+
+		warehouseState.addListener(new WarehouseState.Listener() {
+			@Override
+			public void productQuantityChanged(int productId, int oldQuantity, int newQuantity) {
+
+				updateShortLines(productId, oldQuantity, newQuantity);
+			}
+
+
+			@Override
+			public void orderChanged(int orderId, boolean open) {
+
+				if(open) {
+					reopenOrder(orderId);
+				} else {
+					closeOrder(orderId);
+				}
+			}
+		});
+
+		if(parameters.isSlotting()) {
+			slotting = new SlottingEngine(productCollection,
+			                              pickOrderCollection,
+			                              locationCollection,
+			                              warehouseState,
+			                              parameters.getSlottingAShare(),
+			                              parameters.getSlottingReserve());
+		}
+
+		if(parameters.getLookaheadCandidates() > 1) {
+			lookahead = new Lookahead(productCollection,
+			                          pickOrderCollection,
+			                          warehouseState,
+			                          shortLines,
+			                          productLineStart,
+			                          productLineEnd,
+			                          productLines,
+			                          pickOrders,
+			                          parameters.getLookaheadCandidates(),
+			                          parameters.getLookaheadDepth(),
+			                          parameters.getLookaheadRolloutOrders());
+		}
+	}
+
+
+	/**
+	 * Build the reverse index from products to the lines of the open orders
+	 */
+	private void prepareProductLines() {
+
+		final int[] lineProduct = pickOrderCollection.getLineProducts();
+		final int[] lineQuantity = pickOrderCollection.getLineQuantities();
+
+		productLineStart = new int[productCollection.count() + 1];
+		for(PickOrder pickOrder : pickOrderCollection.getPickOrders()) {
+			for(int position : pickOrderCollection.getOrderLinePositions(pickOrder.getId())) {
+				if(lineProduct[position] >= 0) {
+					++productLineStart[lineProduct[position] + 1];
+				}
+			}
+		}
+		for(int productId = 0; productId < productCollection.count(); ++productId) {
+			productLineStart[productId + 1] += productLineStart[productId];
+		}
+
+		final int[] lines = new int[productLineStart[productCollection.count()]];
+		final int[] fill = Arrays.copyOf(productLineStart, productCollection.count());
+		for(PickOrder pickOrder : pickOrderCollection.getPickOrders()) {
+			for(int position : pickOrderCollection.getOrderLinePositions(pickOrder.getId())) {
+				if(lineProduct[position] >= 0) {
+					lines[fill[lineProduct[position]]++] = position;
+				}
+			}
+		}
+
+		productLines = new int[lines.length];
+		productLineEnd = Arrays.copyOfRange(productLineStart, 1, productCollection.count() + 1);
+		closedLines = new int[productCollection.count()];
+		lineIndexed = new boolean[lineProduct.length];
+		// the lines of a product are sorted as quantity (high word) and index within the product (low word),
+		// which keeps lines with the same quantity in the sequence of the orders
+		final long[] sortKeys = new long[lines.length];
+		for(int productId = 0; productId < productCollection.count(); ++productId) {
+			final int start = productLineStart[productId];
+			final int end = productLineStart[productId + 1];
+			for(int i = start; i < end; ++i) {
+				sortKeys[i] = ((long) lineQuantity[lines[i]] << 32) | (i - start);
+			}
+			Arrays.sort(sortKeys, start, end);
+			for(int i = start; i < end; ++i) {
+				productLines[i] = lines[start + (int) sortKeys[i]];
+				lineIndexed[productLines[i]] = true;
+			}
+		}
+	}
+
+
+	/**
+	 * An order has been picked: it leaves the queue, its lines are no longer counted
+	 */
+	private void closeOrder(int orderId) {
+
+		pickOrders.remove(orderId);
+
+		final int[] lineProduct = pickOrderCollection.getLineProducts();
+		for(int position : pickOrderCollection.getOrderLinePositions(orderId)) {
+			final int productId = lineProduct[position];
+			if(productId >= 0 && lineIndexed[position]) {
+				++closedLines[productId];
+				if(2 * closedLines[productId] > productLineEnd[productId] - productLineStart[productId]) {
+					compactProductLines(productId);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * An order has been restored by a rollback: its lines are indexed again and its count, which was not
+	 * maintained while it was closed, is recounted
+	 */
+	private void reopenOrder(int orderId) {
+
+		final int[] lineProduct = pickOrderCollection.getLineProducts();
+		shortLines[orderId] = 0;
+		for(int position : pickOrderCollection.getOrderLinePositions(orderId)) {
+			final int productId = lineProduct[position];
+			if(productId >= 0) {
+				if(lineIndexed[position]) {
+					--closedLines[productId];
+				} else {
+					insertProductLine(productId, position);
+				}
+			}
+			if(isShort(position)) {
+				++shortLines[orderId];
+			}
+		}
+		replenishmentsNeeded[orderId] = shortLines[orderId];
+		pickOrders.add(orderId, replenishmentsNeeded[orderId]);
+	}
+
+
+	/**
+	 * Drop the lines of picked orders of a product, keeping the others in their sequence
+	 */
+	private void compactProductLines(int productId) {
+
+		final int[] lineOrder = pickOrderCollection.getLineOrders();
+		int end = productLineStart[productId];
+		for(int i = productLineStart[productId]; i < productLineEnd[productId]; ++i) {
+			if(warehouseState.isOpen(lineOrder[productLines[i]])) {
+				productLines[end++] = productLines[i];
+			} else {
+				lineIndexed[productLines[i]] = false;
+			}
 		}
+		productLineEnd[productId] = end;
+		closedLines[productId] = 0;
+	}
+
+
+	/**
+	 * Put a line back behind the lines of the product with the same or a lower quantity
+	 */
+	private void insertProductLine(int productId, int position) {
+
+		final int index = findFirstLineAbove(productId, pickOrderCollection.getLineQuantities()[position]);
+		System.arraycopy(productLines, index, productLines, index + 1, productLineEnd[productId] - index);
+		productLines[index] = position;
+		++productLineEnd[productId];
+		lineIndexed[position] = true;
 	}
 
 	// ----------------------------------------------------------------------------
@@ -103,30 +405,37 @@ public class Solution {
 		Location location = null;
 		int quantity = 0;
 
-		Collections.sort(pickOrders);
-		product = getNextProduct();
+		if(CHECK_REPLENISHMENTS_NEEDED) {
+			checkReplenishmentsNeeded();
+		}
+		if(slotting != null) {
+			slotting.update();
+		}
+		product = (lookahead != null) ? lookahead.next() : getNextProduct();
 
 		if(DEBUG) {
 			System.out.println("Quantity on Hand:");
-			for(Map.Entry<String, Integer> entry : quantityOnHand.entrySet()) {
-				if(entry.getValue() != 0) {
-					System.out.println("Product: " + entry.getKey() + " Quantity: " + entry.getValue());
+			for(Product debugProduct : productCollection.getProducts()) {
+				if(warehouseState.getProductQuantity(debugProduct.getId()) != 0) {
+					System.out.println("Product: " + debugProduct.getCode() + " Quantity: " +
+					                   warehouseState.getProductQuantity(debugProduct.getId()));
 				}
 			}
 			System.out.println("Queue:");
-			for(int i = 0; i < pickOrders.size() && i < 3; ++i) {
-				System.out.println(pickOrders.get(i).toString());
+			int orderId = pickOrders.first();
+			for(int i = 0; orderId >= 0 && i < 3; ++i, orderId = pickOrders.next(orderId)) {
+				System.out.println(pickOrderCollection.getPickOrder(orderId).toString());
 			}
 		}
 
 		if(product != null) {
 
-			location = getNextFreeLocation(product);
-
 			quantity = calcQuantity(product);
 
-			// Update Quantity on Hand
-			quantityOnHand.replace(product.getCode(), quantityOnHand.get(product.getCode()) + quantity);
+			location = getNextFreeLocation(product, quantity);
+			if(location == null) {
+				return null;
+			}
 
 			if(DEBUG) {
 				System.out.println("Product: " + product);
@@ -134,19 +443,70 @@ public class Solution {
 				System.out.println("Quantity: " + quantity);
 			}
 
-			return new ReplenishmentOrder(product, location, quantity);
+			return new ReplenishmentOrder(nextReplenishmentOrderNumber++, product, location, quantity);
 		}
 
 		return null;
 	}
 
 
+	/**
+	 * return the replen moves for the caller to execute in this cycle, used instead of getNextReplenishmentOrder
+	 * if the simulation profile allows more than one replenishment per cycle
+	 * <p>
+	 * Each move is planned on the warehouse state before the next one is chosen, so the next move sees its
+	 * stock; the plan is rolled back before returning, the caller executes the moves in the returned sequence.
+	 *
+	 * @param maxCount max. number of replen moves
+	 *
+	 * @return the replen moves, may be empty
+	 */
+	public List<ReplenishmentOrder> getNextReplenishmentOrders(final int maxCount) {
+
+		Contract.requires(maxCount > 0, "maxCount must be positive");
+
+		final List<ReplenishmentOrder> orders = new ArrayList<ReplenishmentOrder>(maxCount);
+		final int mark = warehouseState.mark();
+		final int queueMark = pickOrders.mark();
+		try {
+			while(orders.size() < maxCount) {
+				final ReplenishmentOrder order = getNextReplenishmentOrder();
+				if(order == null) {
+					break;
+				}
+				orders.add(order);
+
+				final int locationId = order.getReplenishedLocationId();
+				warehouseState.setLocation(locationId,
+				                           order.getReplenishedProductId(),
+				                           warehouseState.getLocationQuantity(locationId) + order.getReplenishedQuantity());
+				plannedLocations.set(locationId);
+			}
+		} finally {
+			// the rollback of the state restores the short lines, the one of the queue the sequence of the orders
+			// (changed by the planned replenishments with the exact ranking only)
+			warehouseState.rollback(mark);
+			pickOrders.rollback(queueMark);
+			plannedLocations.clear();
+		}
+		return orders;
+	}
+
+
 	private Product getNextProduct() {
 
-		for(PickOrder pickOrder : pickOrders) {
-			for(PickOrderLine pickOrderLine : pickOrder.getPickOrderLines()) {
-				if(pickOrderLine.getQuantity() > quantityOnHand.get(pickOrderLine.getProductCode())) {
-					return productCollection.findByCode(pickOrderLine.getProductCode());
+		// the ranking may be older than the stock, so the orders are scanned from the front of the queue,
+		// but orders without a short line can be skipped
+		for(int orderId = pickOrders.first(); orderId >= 0; orderId = pickOrders.next(orderId)) {
+			if(shortLines[orderId] == 0) {
+				continue;
+			}
+			for(PickOrderLine pickOrderLine : pickOrderCollection.getPickOrder(orderId).getPickOrderLines()) {
+				if(pickOrderLine.getQuantity() > warehouseState.getProductQuantity(pickOrderLine.getProductId())) {
+					final Product product = productCollection.getProduct(pickOrderLine.getProductId());
+					if((slotting == null) || slotting.canReplenish(product, calcQuantity(product))) {
+						return product;
+					}
 				}
 			}
 		}
@@ -156,23 +516,143 @@ public class Solution {
 	// ............................................................................
 
 
-	private Location getNextFreeLocation(Product product) {
+	private Location getNextFreeLocation(Product product, int quantity) {
+
+		//null: All Locations occupied
+		Location location = (slotting != null) ? slotting.findLocation(product, quantity) : locationCollection.findFirstFree();
 
-		for(Location location : locationCollection.getLocations()) {
-			if(location.getAssignedProduct() == null) {
-				return location;
+		// the locations of the planned batch are not free any more (and their stock is not booked to them yet)
+		while(location != null && plannedLocations.get(location.getId())) {
+			location = locationCollection.findNextFree(location.getId() + 1);
+		}
+		return location;
+	}
+
+
+	/**
+	 * Update shortLines of all orders with a line that is crossed by a change of the stock of a product
+	 *
+	 * @param productId   id of the product
+	 * @param oldQuantity quantity on hand before the change
+	 * @param newQuantity quantity on hand after the change
+	 */
+	private void updateShortLines(int productId, int oldQuantity, int newQuantity) {
+
+		// a line is short while quantityOnHand < line quantity, so exactly the lines with
+		// a quantity in (min, max] of old and new quantity change their state
+		final int from = findFirstLineAbove(productId, Math.min(oldQuantity, newQuantity));
+		final int to = findFirstLineAbove(productId, Math.max(oldQuantity, newQuantity));
+		final int[] lineOrder = pickOrderCollection.getLineOrders();
+		for(int i = from; i < to; ++i) {
+			final int orderId = lineOrder[productLines[i]];
+			if(!warehouseState.isOpen(orderId)) {
+				continue;
+			}
+			shortLines[orderId] += (newQuantity < oldQuantity) ? 1 : -1;
+			if(parameters.isExactRanking()) {
+				replenishmentsNeeded[orderId] = shortLines[orderId];
+				pickOrders.update(orderId, replenishmentsNeeded[orderId]);
 			}
 		}
+	}
 
-		//throw new Exception("All Locations occupied");
-		return null;
+
+	/**
+	 * Rank the open orders with a product of the picked orders by their current short lines
+	 *
+	 * @param pickedOrders the orders picked in this tick, already closed
+	 */
+	private void rankOrdersOfPickedProducts(List<PickOrder> pickedOrders) {
+
+		final int[] lineProduct = pickOrderCollection.getLineProducts();
+		final int[] lineOrder = pickOrderCollection.getLineOrders();
+		for(PickOrder pickedOrder : pickedOrders) {
+			for(int position : pickOrderCollection.getOrderLinePositions(pickedOrder.getId())) {
+				final int productId = lineProduct[position];
+				if(productId < 0 || rankedProducts.get(productId)) {
+					continue;
+				}
+				rankedProducts.set(productId);
+				for(int i = productLineStart[productId]; i < productLineEnd[productId]; ++i) {
+					final int orderId = lineOrder[productLines[i]];
+					if(warehouseState.isOpen(orderId) && replenishmentsNeeded[orderId] != shortLines[orderId]) {
+						replenishmentsNeeded[orderId] = shortLines[orderId];
+						pickOrders.update(orderId, replenishmentsNeeded[orderId]);
+						if(DEBUG) {
+							System.out.println("Recalculating: " + pickOrderCollection.getPickOrder(orderId));
+						}
+					}
+				}
+			}
+		}
+		rankedProducts.clear();
+	}
+
+
+	/**
+	 * Binary search within the lines of a product
+	 *
+	 * @return index into productLines of the first line with a quantity above the given one
+	 */
+	private int findFirstLineAbove(int productId, int quantity) {
+
+		final int[] lineQuantity = pickOrderCollection.getLineQuantities();
+		int low = productLineStart[productId];
+		int high = productLineEnd[productId];
+		while(low < high) {
+			final int middle = (low + high) >>> 1;
+			if(lineQuantity[productLines[middle]] <= quantity) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Whether the line needs more than the quantity on hand
+	 */
+	private boolean isShort(int position) {
+
+		final int productId = pickOrderCollection.getLineProducts()[position];
+		return productId < 0 ||
+		       warehouseState.getProductQuantity(productId) < pickOrderCollection.getLineQuantities()[position];
+	}
+
+
+	/**
+	 * Recount shortLines of all open orders and compare with the maintained values
+	 *
+	 * @throws IllegalStateException if a value differs
+	 */
+	private void checkReplenishmentsNeeded() {
+
+		for(PickOrder pickOrder : pickOrderCollection.getPickOrders()) {
+			if(!warehouseState.isOpen(pickOrder.getId())) {
+				continue;
+			}
+			int count = 0;
+			for(int position : pickOrderCollection.getOrderLinePositions(pickOrder.getId())) {
+				if(isShort(position)) {
+					++count;
+				}
+			}
+			if(count != shortLines[pickOrder.getId()]) {
+				throw new IllegalStateException(String.format("order %s: shortLines is %d, recounted %d",
+				                                              pickOrder.getOrderId(),
+				                                              shortLines[pickOrder.getId()],
+				                                              count));
+			}
+		}
 	}
 
 
 	private int calcQuantity(Product product) {
 
-		int productQuantityOnHand = quantityOnHand.get(product.getCode());
-		int productQuantityNeeded = pickOrderCollection.getCurrentNeededQuantity(product.getCode()) -
+		int productQuantityOnHand = warehouseState.getProductQuantity(product.getId());
+		int productQuantityNeeded = pickOrderCollection.getCurrentNeededQuantity(product.getId()) -
 		                            productQuantityOnHand;
 
 		return productQuantityNeeded > product.getMaxLocationQuantity() ?
@@ -202,48 +682,13 @@ public class Solution {
 			new Scanner(System.in).nextLine();
 		}
 
-		if(!pickedOrders.isEmpty()) {
-
-			// Get Products from the picked Orders
-			Map<String, Integer> removedProducts = new LinkedHashMap<>();
-			for(PickOrder pickedOrder : pickedOrders) {
-				for(PickOrderLine pickedOrderLines : pickedOrder.getPickOrderLines()) {
-					if(!removedProducts.containsKey(pickedOrderLines.getProductCode())) {
-						removedProducts.put(pickedOrderLines.getProductCode(), pickedOrderLines.getQuantity());
-					} else {
-						removedProducts.replace(pickedOrderLines.getProductCode(),
-						                        removedProducts.get(pickedOrderLines.getProductCode()) +
-						                        pickedOrderLines.getQuantity());
-					}
-				}
-			}
-
-			// Update Quantity on Hand
-			for(Map.Entry<String, Integer> entry : removedProducts.entrySet()) {
-				if(DEBUG) {
-					System.out.println("Remove " + entry.getValue() + " pieces of " + entry.getKey());
-				}
-
-				quantityOnHand.replace(entry.getKey(), quantityOnHand.get(entry.getKey()) - entry.getValue());
-			}
-
-			// Performance optimization
-			if(DEBUG) {
-				System.out.println("Remove Pick Orders " + pickedOrders + " from Queue");
-			}
-
-			pickOrders.removeAll(pickedOrders);
-			for(PickOrder pickOrder : pickOrders) {
-				for(String productCode : removedProducts.keySet()) {
-					if(pickOrder.containsProduct(productCode)) {
-						pickOrder.calcReplenishmentsNeeded(quantityOnHand);
-						if(DEBUG) {
-							System.out.println("Recalculating: " + pickOrder);
-						}
-						break;
-					}
-				}
-			}
+		// the picked orders have already been removed from the queue and shortLines has been updated
+		// while the scheduler changed the warehouse state
+		if(DEBUG) {
+			System.out.println("Picked Orders " + pickedOrders);
+		}
+		if(!parameters.isExactRanking()) {
+			rankOrdersOfPickedProducts(pickedOrders);
 		}
 	}
 
@@ -0,0 +1,152 @@
+package com.knapp.codingcontest.cc20160408.solution;
+
+import com.knapp.codingcontest.cc20160408.util.Contract;
+
+import java.util.Locale;
+
+/**
+ * The tunable parameters of one Solution instance, the defaults are the constants in Solution
+ */
+public class SolutionParameters {
+	// ----------------------------------------------------------------------------
+
+	private int lookaheadCandidates = Solution.LOOKAHEAD_CANDIDATES;
+	private int lookaheadDepth = Solution.LOOKAHEAD_DEPTH;
+	private int lookaheadRolloutOrders = Solution.LOOKAHEAD_ROLLOUT_ORDERS;
+	private boolean slotting = Solution.SLOTTING;
+	private double slottingAShare = Solution.SLOTTING_A_SHARE;
+	private double slottingReserve = Solution.SLOTTING_RESERVE;
+	private boolean exactRanking = Solution.EXACT_RANKING;
+
+	// ----------------------------------------------------------------------------
+
+
+	public int getLookaheadCandidates() {
+
+		return lookaheadCandidates;
+	}
+
+
+	/**
+	 * @param lookaheadCandidates number of candidate products compared by the lookahead, 0 or 1 for the greedy choice
+	 */
+	public void setLookaheadCandidates(final int lookaheadCandidates) {
+
+		Contract.requires(lookaheadCandidates >= 0, "lookaheadCandidates must not be negative");
+
+		this.lookaheadCandidates = lookaheadCandidates;
+	}
+
+
+	public int getLookaheadDepth() {
+
+		return lookaheadDepth;
+	}
+
+
+	/**
+	 * @param lookaheadDepth number of ticks simulated per candidate
+	 */
+	public void setLookaheadDepth(final int lookaheadDepth) {
+
+		Contract.requires(lookaheadDepth > 0, "lookaheadDepth must be positive");
+
+		this.lookaheadDepth = lookaheadDepth;
+	}
+
+
+	public int getLookaheadRolloutOrders() {
+
+		return lookaheadRolloutOrders;
+	}
+
+
+	/**
+	 * @param lookaheadRolloutOrders number of orders the rollout policy of the lookahead replenishes for
+	 */
+	public void setLookaheadRolloutOrders(final int lookaheadRolloutOrders) {
+
+		Contract.requires(lookaheadRolloutOrders > 0, "lookaheadRolloutOrders must be positive");
+
+		this.lookaheadRolloutOrders = lookaheadRolloutOrders;
+	}
+
+
+	public boolean isSlotting() {
+
+		return slotting;
+	}
+
+
+	/**
+	 * @param slotting whether locations are chosen by the SlottingEngine instead of the first free one
+	 */
+	public void setSlotting(final boolean slotting) {
+
+		this.slotting = slotting;
+	}
+
+
+	public double getSlottingAShare() {
+
+		return slottingAShare;
+	}
+
+
+	/**
+	 * @param slottingAShare share of the products with demand in class A
+	 */
+	public void setSlottingAShare(final double slottingAShare) {
+
+		Contract.requires((slottingAShare >= 0) && (slottingAShare <= 1), "slottingAShare must be within 0..1");
+
+		this.slottingAShare = slottingAShare;
+	}
+
+
+	public double getSlottingReserve() {
+
+		return slottingReserve;
+	}
+
+
+	/**
+	 * @param slottingReserve share of the locations reserved for class A products
+	 */
+	public void setSlottingReserve(final double slottingReserve) {
+
+		Contract.requires((slottingReserve >= 0) && (slottingReserve < 1), "slottingReserve must be within 0..1");
+
+		this.slottingReserve = slottingReserve;
+	}
+
+
+	public boolean isExactRanking() {
+
+		return exactRanking;
+	}
+
+
+	/**
+	 * @param exactRanking whether the orders are ranked again after every change of the stock instead of only after
+	 *                     a pick of one of their products
+	 */
+	public void setExactRanking(final boolean exactRanking) {
+
+		this.exactRanking = exactRanking;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	@Override
+	public String toString() {
+
+		return String.format("lookaheadCandidates=%d lookaheadDepth=%d lookaheadRolloutOrders=%d slotting=%s ranking=%s",
+		                     lookaheadCandidates,
+		                     lookaheadDepth,
+		                     lookaheadRolloutOrders,
+		                     slotting ? String.format(Locale.ROOT, "%.2f/%.2f", slottingAShare, slottingReserve) : "off",
+		                     exactRanking ? "exact" : "picks");
+	}
+}
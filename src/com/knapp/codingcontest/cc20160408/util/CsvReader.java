@@ -1,16 +1,23 @@
 package com.knapp.codingcontest.cc20160408.util;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
-import java.lang.reflect.Constructor;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 public final class CsvReader {
 	// ----------------------------------------------------------------------------
 
+	/**
+	 * max. number of bytes mapped at once, larger files are read in several windows
+	 */
+	private static final long MAX_WINDOW_SIZE = 1L << 30;
+
+	// ----------------------------------------------------------------------------
+
 
 	private CsvReader() {
 
@@ -20,52 +27,358 @@ public final class CsvReader {
 
 
 	/**
-	 * read lines from a CSV file, create instances of type Target by calling a string[] constructor
+	 * read all records from a CSV file and pass them to the handler in file order
+	 * <p>
+	 * The file is memory mapped and tokenized in place, no line strings or field arrays are created.
+	 * Empty lines are skipped, trailing empty fields are not counted (like String.split).
 	 *
 	 * @param fullFileName Full path to the csv file
-	 * @param type         type to create
+	 * @param handler      callback for every record
+	 *
+	 * @throws Exception
+	 */
+	public static void read(final String fullFileName, final RecordHandler handler)
+			throws Exception {
+
+		CsvReader.read(fullFileName, 0, Long.MAX_VALUE, handler);
+	}
+
+
+	/**
+	 * read the records within a byte range of a CSV file and pass them to the handler in file order
+	 * <p>
+	 * The range has to start at the beginning of a line (see findLineStarts), it ends at the given
+	 * offset or at the end of the file.
 	 *
-	 * @return a list of instances or a empty list
+	 * @param fullFileName Full path to the csv file
+	 * @param start        offset of the first byte to read
+	 * @param end          offset after the last byte to read
+	 * @param handler      callback for every record
 	 *
 	 * @throws Exception
 	 */
-	public static <T extends Object> List<T> readCsvFile(final String fullFileName, final Class<T> type)
+	public static void read(final String fullFileName, final long start, final long end, final RecordHandler handler)
 			throws Exception {
 
 		Contract.requires(!Contract.isNullOrWhiteSpace(fullFileName), "fullFileName mandatory but is null");
+		Contract.requires(handler != null, "handler mandatory but is null");
+
+		final File file = CsvReader.existingFile(fullFileName);
+
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			final long size = Math.min(end, channel.size());
+			final Record record = new Record();
+
+			long windowStart = start;
+			while(windowStart < size) {
+				final long windowSize = Math.min(CsvReader.MAX_WINDOW_SIZE, size - windowStart);
+				final boolean lastWindow = (windowStart + windowSize) == size;
+				final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+
+				final int consumed = CsvReader.readRecords(window, lastWindow, record, handler);
+				if(consumed == 0) {
+					throw new IllegalArgumentException(String.format("CSV-Input line too long in '%s' at offset %d",
+					                                                 fullFileName,
+					                                                 windowStart));
+				}
+				windowStart += consumed;
+			}
+		} finally {
+			if(channel != null) {
+				channel.close();
+			}
+		}
+	}
+
+
+	/**
+	 * split a CSV file into byte ranges of about the same size that start at the beginning of a line
+	 *
+	 * @param fullFileName Full path to the csv file
+	 * @param parts        the number of ranges wanted
+	 *
+	 * @return the start offsets of the ranges followed by the file size, ranges may be empty
+	 *
+	 * @throws Exception
+	 */
+	public static long[] findLineStarts(final String fullFileName, final int parts)
+			throws Exception {
+
+		Contract.requires(parts > 0, "parts must be positive");
+
+		final File file = CsvReader.existingFile(fullFileName);
+
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			final long size = channel.size();
+			final long[] starts = new long[parts + 1];
+			final ByteBuffer buffer = ByteBuffer.allocate(8192);
+			for(int part = 1; part < parts; ++part) {
+				long position = Math.max(starts[part - 1], (size / parts) * part);
+				// the line containing position - 1 belongs to the previous range
+				boolean found = (position == 0) || (position >= size);
+				position = Math.max(0, position - 1);
+				while(!found && (position < size)) {
+					buffer.clear();
+					final int count = channel.read(buffer, position);
+					for(int i = 0; i < count; ++i) {
+						if(buffer.get(i) == '\n') {
+							position += i + 1;
+							found = true;
+							break;
+						}
+					}
+					if(!found) {
+						position += Math.max(count, 0);
+					}
+				}
+				starts[part] = Math.min(position, size);
+			}
+			starts[parts] = size;
+			return starts;
+		} finally {
+			if(channel != null) {
+				channel.close();
+			}
+		}
+	}
+
+
+	private static File existingFile(final String fullFileName) {
 
 		final File file = new File(fullFileName);
 		if(!file.exists()) {
 			throw new IllegalArgumentException(String.format("CSV-Input file does not exist: '%s'", fullFileName));
 		}
+		return file;
+	}
 
-		final Constructor<T> ctor = type.getConstructor(new Class[] {String[].class});
 
-		if(null == ctor) {
-			throw new IllegalArgumentException(String.format(
-					"Target '%s' can not be constructed because it does not contain a ctor with string [] as argument",
-					type.getName()));
+	/**
+	 * tokenize all complete lines within the buffer
+	 *
+	 * @param buffer     the bytes to read
+	 * @param endOfInput whether the buffer ends with the end of the file (the last line needs no line feed)
+	 * @param record     record to reuse for every line
+	 * @param handler    callback for every record
+	 *
+	 * @return number of bytes consumed, i.e. up to and including the last line feed
+	 *
+	 * @throws Exception
+	 */
+	static int readRecords(final ByteBuffer buffer,
+	                       final boolean endOfInput,
+	                       final Record record,
+	                       final RecordHandler handler)
+			throws Exception {
+
+		final int limit = buffer.limit();
+		record.buffer = buffer;
+
+		int lineStart = 0;
+		int fieldStart = 0;
+		record.fieldCount = 0;
+		for(int i = 0; i < limit; ++i) {
+			final byte b = buffer.get(i);
+			if(b == ';') {
+				record.addField(fieldStart, i);
+				fieldStart = i + 1;
+			} else if(b == '\n') {
+				record.addField(fieldStart, CsvReader.lineEnd(buffer, fieldStart, i));
+				CsvReader.emit(record, handler);
+
+				lineStart = i + 1;
+				fieldStart = lineStart;
+				record.fieldCount = 0;
+			}
 		}
 
-		final List<T> objects = new ArrayList<T>();
-		BufferedReader reader = null;
-		try {
-			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-			String line;
-			while((line = reader.readLine()) != null) {
-				final String[] fields = line.split(";", 0);
+		if(endOfInput && (lineStart < limit)) {
+			record.addField(fieldStart, CsvReader.lineEnd(buffer, fieldStart, limit));
+			CsvReader.emit(record, handler);
+			lineStart = limit;
+		}
+		return lineStart;
+	}
+
+
+	/**
+	 * @return the end of the last field of a line ending at the given offset, without a trailing carriage return
+	 */
+	private static int lineEnd(final ByteBuffer buffer, final int fieldStart, final int end) {
+
+		return ((end > fieldStart) && (buffer.get(end - 1) == '\r')) ? end - 1 : end;
+	}
+
+
+	private static void emit(final Record record, final RecordHandler handler)
+			throws Exception {
+
+		while((record.fieldCount > 0) && (record.length(record.fieldCount - 1) == 0)) {
+			--record.fieldCount;
+		}
+		if(record.fieldCount > 0) {
+			handler.handle(record);
+		}
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+
+	/**
+	 * Callback for the records of a csv file
+	 */
+	public interface RecordHandler {
+
+		/**
+		 * handle one record
+		 *
+		 * @param record the record, only valid during this call
+		 *
+		 * @throws Exception
+		 */
+		void handle(Record record)
+				throws Exception;
+	}
+
+	/**
+	 * One line of a csv file - the fields are byte ranges within the mapped file
+	 */
+	public static final class Record {
+
+		private ByteBuffer buffer;
+		private int[] fieldStart = new int[8];
+		private int[] fieldEnd = new int[8];
+		private int fieldCount;
+		private byte[] scratch = new byte[64];
+
+
+		private Record() {
+
+		}
 
-				final T t = ctor.newInstance(new Object[] {fields});
 
-				objects.add(t);
+		private void addField(final int start, final int end) {
+
+			if(fieldCount == fieldStart.length) {
+				fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+				fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
 			}
-		} finally {
-			if(reader != null) {
-				reader.close();
+			fieldStart[fieldCount] = start;
+			fieldEnd[fieldCount] = end;
+			++fieldCount;
+		}
+
+
+		private int length(final int field) {
+
+			return fieldEnd[field] - fieldStart[field];
+		}
+
+
+		/**
+		 * The number of fields in this record
+		 */
+		public int getFieldCount() {
+
+			return fieldCount;
+		}
+
+
+		/**
+		 * Get the content of a field as string (UTF-8)
+		 *
+		 * @param field index of the field
+		 */
+		public String getString(final int field) {
+
+			final int length = length(field);
+			if(scratch.length < length) {
+				scratch = new byte[Math.max(length, scratch.length * 2)];
 			}
+			for(int i = 0; i < length; ++i) {
+				scratch[i] = buffer.get(fieldStart[field] + i);
+			}
+			return new String(scratch, 0, length, StandardCharsets.UTF_8);
 		}
-		return objects;
-	}
 
-	// ----------------------------------------------------------------------------
+
+		/**
+		 * Whether the field holds exactly the given (ASCII) string - allows to reuse strings
+		 * that repeat over many lines without decoding them again
+		 *
+		 * @param field index of the field
+		 * @param value string to compare with, may be null
+		 */
+		public boolean equals(final int field, final String value) {
+
+			if((value == null) || (value.length() != length(field))) {
+				return false;
+			}
+			for(int i = 0; i < value.length(); ++i) {
+				if(buffer.get(fieldStart[field] + i) != value.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+
+		/**
+		 * Parse a field as decimal int, like Integer.parseInt
+		 *
+		 * @param field index of the field
+		 */
+		public int getInt(final int field) {
+
+			final int start = fieldStart[field];
+			final int end = fieldEnd[field];
+			final boolean negative = (end > start) && (buffer.get(start) == '-');
+			int i = (negative || ((end > start) && (buffer.get(start) == '+'))) ? start + 1 : start;
+			if(i == end) {
+				throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+			}
+
+			long value = 0;
+			for(; i < end; ++i) {
+				final int digit = buffer.get(i) - '0';
+				if((digit < 0) || (digit > 9)) {
+					throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+				}
+				value = (value * 10) + digit;
+				if(value > (Integer.MAX_VALUE + 1L)) {
+					throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+				}
+			}
+			value = negative ? -value : value;
+			if(value > Integer.MAX_VALUE) {
+				throw new NumberFormatException("For input string: \"" + getString(field) + "\"");
+			}
+			return (int) value;
+		}
+
+
+		/**
+		 * Parse a field as boolean, like Boolean.parseBoolean
+		 *
+		 * @param field index of the field
+		 */
+		public boolean getBoolean(final int field) {
+
+			if(length(field) != 4) {
+				return false;
+			}
+			final String expected = "true";
+			for(int i = 0; i < 4; ++i) {
+				if(Character.toLowerCase((char) buffer.get(fieldStart[field] + i)) != expected.charAt(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
 }
@@ -0,0 +1,164 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of non-negative long values with log-linear buckets (like an HDR histogram)
+ * <p>
+ * Values below 2^precision are counted exactly; above, every power of two is split into
+ * 2^(precision-1) buckets, so the relative error of a reported value is below 2^-(precision-1).
+ * Recording never allocates.
+ */
+public class LatencyHistogram {
+	// ----------------------------------------------------------------------------
+
+	private final int precision;
+	private final int halfBucketCount;
+	private final long[] counts;
+
+	private long count = 0;
+	private long sum = 0;
+	private long min = Long.MAX_VALUE;
+	private long max = 0;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Histogram with a relative error below 1/16
+	 */
+	public LatencyHistogram() {
+
+		this(5);
+	}
+
+
+	/**
+	 * @param precision number of significant bits per bucket, 1..16
+	 */
+	public LatencyHistogram(final int precision) {
+
+		Contract.requires((precision >= 1) && (precision <= 16), "precision must be within 1..16");
+
+		this.precision = precision;
+		halfBucketCount = 1 << (precision - 1);
+		counts = new long[(1 << precision) + ((64 - precision) * halfBucketCount)];
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Count a value, negative values are counted as 0
+	 *
+	 * @param value
+	 */
+	public void record(final long value) {
+
+		final long v = Math.max(0, value);
+		counts[bucket(v)]++;
+		count++;
+		sum += v;
+		min = Math.min(min, v);
+		max = Math.max(max, v);
+	}
+
+
+	/**
+	 * Forget all recorded values
+	 */
+	public void reset() {
+
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	// ............................................................................
+
+
+	public long getCount() {
+
+		return count;
+	}
+
+
+	public long getSum() {
+
+		return sum;
+	}
+
+
+	/**
+	 * @return the smallest value, 0 if nothing was recorded
+	 */
+	public long getMin() {
+
+		return (count == 0) ? 0 : min;
+	}
+
+
+	public long getMax() {
+
+		return max;
+	}
+
+
+	public double getMean() {
+
+		return (count == 0) ? 0 : ((double) sum / count);
+	}
+
+
+	/**
+	 * The value below or at which the given percentage of all values lies
+	 *
+	 * @param percentile 0..100
+	 *
+	 * @return the highest value of the bucket containing the percentile (at most the maximum)
+	 */
+	public long getValueAtPercentile(final double percentile) {
+
+		if(count == 0) {
+			return 0;
+		}
+
+		final long rank = Math.max(1, (long) Math.ceil((Math.min(100, Math.max(0, percentile)) / 100) * count));
+		long seen = 0;
+		for(int i = 0; i < counts.length; ++i) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.min(max, highestValue(i));
+			}
+		}
+		return max;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private int bucket(final long value) {
+
+		if(value < (1L << precision)) {
+			return (int) value;
+		}
+		final int shift = (63 - Long.numberOfLeadingZeros(value)) - (precision - 1);
+		return ((shift + 1) * halfBucketCount) + (int) ((value >>> shift) - halfBucketCount);
+	}
+
+
+	private long highestValue(final int bucket) {
+
+		if(bucket < (1 << precision)) {
+			return bucket;
+		}
+		final int shift = (bucket / halfBucketCount) - 1;
+		final long subBucket = (bucket % halfBucketCount) + halfBucketCount;
+		final long highest = ((subBucket + 1) << shift) - 1;
+		return (highest < 0) ? Long.MAX_VALUE : highest;
+	}
+
+	// ----------------------------------------------------------------------------
+}
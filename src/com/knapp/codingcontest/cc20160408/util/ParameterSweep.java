@@ -0,0 +1,298 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import com.knapp.codingcontest.cc20160408.Input;
+import com.knapp.codingcontest.cc20160408.Settings;
+import com.knapp.codingcontest.cc20160408.solution.Solution;
+import com.knapp.codingcontest.cc20160408.solution.SolutionParameters;
+
+import java.io.PrintStream;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the simulation for many parameter sets concurrently and ranks them by the cycles needed
+ * <p>
+ * The input is loaded once; every run works on its own copy (see Input.copy), so the runs are
+ * independent of each other. Nothing is written to the output directory.
+ */
+public final class ParameterSweep {
+	// ----------------------------------------------------------------------------
+
+	private final Input input;
+	private final int threads;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param input   the input all runs start from, it is not changed
+	 * @param threads number of runs executed concurrently
+	 */
+	public ParameterSweep(final Input input, final int threads) {
+
+		Contract.requires(input != null, "input mandatory but is null");
+		Contract.requires(threads > 0, "threads must be positive");
+
+		this.input = input;
+		this.threads = threads;
+	}
+
+
+	/**
+	 * Sweep over the cartesian product of the given parameter values
+	 * <p>
+	 * Usage: ParameterSweep [threads=N] [candidates=v,v,...] [depth=v,...] [rollout=v,...] [slotting=0,1] [ranking=0,1]
+	 *
+	 * @param args
+	 *
+	 * @throws Exception
+	 */
+	public static void main(final String... args)
+			throws Exception {
+
+		int threads = Runtime.getRuntime().availableProcessors();
+		int[] candidates = {0, 2, 4, 8};
+		int[] depths = {Solution.LOOKAHEAD_DEPTH};
+		int[] rollouts = {Solution.LOOKAHEAD_ROLLOUT_ORDERS};
+		int[] slottings = {Solution.SLOTTING ? 1 : 0};
+		int[] rankings = {Solution.EXACT_RANKING ? 1 : 0};
+		for(final String arg : args) {
+			final int separator = arg.indexOf('=');
+			if(separator < 0) {
+				throw new IllegalArgumentException("expected name=values but got " + arg);
+			}
+			final String name = arg.substring(0, separator).trim();
+			final int[] values = ParameterSweep.parseValues(arg.substring(separator + 1));
+			if("threads".equals(name)) {
+				threads = values[0];
+			} else if("candidates".equals(name)) {
+				candidates = values;
+			} else if("depth".equals(name)) {
+				depths = values;
+			} else if("rollout".equals(name)) {
+				rollouts = values;
+			} else if("slotting".equals(name)) {
+				slottings = values;
+			} else if("ranking".equals(name)) {
+				rankings = values;
+			} else {
+				throw new IllegalArgumentException("unknown parameter " + name);
+			}
+		}
+
+		final List<SolutionParameters> parameterSets = new ArrayList<SolutionParameters>();
+		for(final int candidate : candidates) {
+			for(final int depth : depths) {
+				for(final int rollout : rollouts) {
+					for(final int slotting : slottings) {
+						for(final int ranking : rankings) {
+							final SolutionParameters parameters = new SolutionParameters();
+							parameters.setLookaheadCandidates(candidate);
+							parameters.setLookaheadDepth(depth);
+							parameters.setLookaheadRolloutOrders(rollout);
+							parameters.setSlotting(slotting != 0);
+							parameters.setExactRanking(ranking != 0);
+							parameterSets.add(parameters);
+						}
+					}
+				}
+			}
+		}
+
+		final ParameterSweep sweep = new ParameterSweep(Input.createFromCsv(), threads);
+		ParameterSweep.print(sweep.run(parameterSets), System.out);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Simulate every parameter set on its own copy of the input
+	 *
+	 * @param parameterSets the parameters of the runs
+	 *
+	 * @return the results, ranked: completed runs by cycles, then the others by remaining orders
+	 *
+	 * @throws Exception the first exception of a run
+	 */
+	public List<Result> run(final List<SolutionParameters> parameterSets)
+			throws Exception {
+
+		Contract.requires(parameterSets != null, "parameterSets mandatory but is null");
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			// each run copies the input when it starts, so only the runs in progress hold their state
+			final List<Future<Result>> futures = new ArrayList<Future<Result>>();
+			for(final SolutionParameters parameters : parameterSets) {
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call()
+							throws Exception {
+
+						return ParameterSweep.simulate(input.copy(), parameters);
+					}
+				}));
+			}
+
+			final List<Result> results = new ArrayList<Result>();
+			for(final Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			Collections.sort(results);
+			return results;
+		} catch(final ExecutionException e) {
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+
+	/**
+	 * Print the ranked results as table
+	 *
+	 * @param results
+	 * @param out
+	 */
+	public static void print(final List<Result> results, final PrintStream out) {
+
+		out.println(String.format("%4s %8s %9s %9s %10s  %s", "rank", "cycles", "completed", "remaining", "time [ms]", "parameters"));
+		int rank = 1;
+		for(final Result result : results) {
+			out.println(String.format("%4d %8d %9s %9d %10d  %s",
+			                          rank++,
+			                          result.cycles,
+			                          result.isCompleted() ? "yes" : "no",
+			                          result.remainingOrders,
+			                          result.millis,
+			                          result.parameters));
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private static Result simulate(final Input input, final SolutionParameters parameters)
+			throws Exception {
+
+		final long start = System.nanoTime();
+		final Solution solution = new Solution(input, parameters);
+		final Scheduler scheduler = new Scheduler(input);
+		scheduler.setTickLog(new TickLog(TickLog.Level.OFF, 1, System.err));
+
+		final int[] cycles = new int[1];
+		scheduler.setListener(new SchedulerListener() {
+			@Override
+			public void runStarted(final int orderCount, final int lineCount) {
+
+			}
+
+
+			@Override
+			public void tickCompleted(final int tick,
+			                          final long replenishmentNanos,
+			                          final long refillNanos,
+			                          final long pickNanos,
+			                          final long handlePickedNanos,
+			                          final int pickedOrders,
+			                          final int occupiedLocations,
+			                          final int openOrders) {
+
+			}
+
+
+			@Override
+			public void runFinished(final int ticks) {
+
+				cycles[0] = ticks;
+			}
+		});
+		scheduler.run(solution);
+
+		return new Result(parameters,
+		                  cycles[0],
+		                  input.getPickOrderCollection().count(),
+		                  (System.nanoTime() - start) / 1000000);
+	}
+
+
+	private static int[] parseValues(final String text) {
+
+		final String[] parts = text.split(",");
+		final int[] values = new int[parts.length];
+		for(int i = 0; i < parts.length; ++i) {
+			values[i] = Integer.parseInt(parts[i].trim());
+		}
+		return values;
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+	/**
+	 * Outcome of one run
+	 */
+	public static final class Result implements Comparable<Result> {
+
+		private final SolutionParameters parameters;
+		private final int cycles;
+		private final int remainingOrders;
+		private final long millis;
+
+
+		private Result(final SolutionParameters parameters, final int cycles, final int remainingOrders, final long millis) {
+
+			this.parameters = parameters;
+			this.cycles = cycles;
+			this.remainingOrders = remainingOrders;
+			this.millis = millis;
+		}
+
+
+		public SolutionParameters getParameters() {
+
+			return parameters;
+		}
+
+
+		/**
+		 * @return the number of the last cycle, Settings.MAX_ALLOWED_CYCLES if the run did not complete in time
+		 */
+		public int getCycles() {
+
+			return cycles;
+		}
+
+
+		public int getRemainingOrders() {
+
+			return remainingOrders;
+		}
+
+
+		public boolean isCompleted() {
+
+			return remainingOrders == 0;
+		}
+
+
+		public long getMillis() {
+
+			return millis;
+		}
+
+
+		@Override
+		public int compareTo(final Result other) {
+
+			if(remainingOrders != other.remainingOrders) {
+				return Integer.compare(remainingOrders, other.remainingOrders);
+			}
+			return Integer.compare(cycles, other.cycles);
+		}
+	}
+}
@@ -3,11 +3,12 @@ package com.knapp.codingcontest.cc20160408.util;
 import com.knapp.codingcontest.cc20160408.Settings;
 
 import java.io.*;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.nio.channels.Channels;
 
 /**
  * Helper class to create zip for upload
+ * <p>
+ * The entries are compressed in parallel (Settings.zipThreads, Settings.zipCompressionLevel), see UploadArchive.
  */
 public final class PrepareUpload {
 	// ----------------------------------------------------------------------------
@@ -30,34 +31,101 @@ public final class PrepareUpload {
 
 		final File basedir = new File(Settings.outputPath);
 
-		final String zipFileName = Settings.outputPath + File.separator + Settings.outZipFilename;
-		final File zipFile = new File(zipFileName);
-		if(zipFile.exists()) {
-			zipFile.delete();
-		}
-
-		ZipOutputStream archive = null;
+		UploadArchive archive = null;
 		try {
-			archive = new ZipOutputStream(new FileOutputStream(zipFile));
+			archive = PrepareUpload.openZipFile();
 
 			final String resultsFileName = Settings.outputPath + File.separator + Settings.outReplenFilename;
 			PrepareUpload.add(archive, basedir, new File(resultsFileName));
 
-			final String propertiesFileName = Settings.outputPath + File.separator + Settings.outPropertyFilename;
-			PrepareUpload.add(archive, basedir, new File(propertiesFileName));
-
-			PrepareUpload.add(archive, basedir, new File("src"));
+			PrepareUpload.addSources(archive);
+			archive.close();
 		} finally {
 			if(archive != null) {
-				archive.close();
+				archive.abort();
 			}
 		}
 	}
 
+
+	/**
+	 * Start the uploadable zip file with the results streamed into it, the results file is not written
+	 * <p>
+	 * The returned writer must be closed before the zip is completed with finishZipFile.
+	 *
+	 * @param archive archive created by openZipFile
+	 *
+	 * @return the writer for the results entry
+	 *
+	 * @throws IOException
+	 */
+	public static ResultWriter openResults(final UploadArchive archive)
+			throws IOException {
+
+		Contract.requires(archive != null, "archive mandatory but is null");
+
+		final OutputStream entry = archive.openEntry(Settings.outReplenFilename, System.currentTimeMillis());
+		return new ResultWriter(Channels.newChannel(entry));
+	}
+
+
+	/**
+	 * Add the remaining entries to a zip started with openResults and close it
+	 * <p>
+	 * If this fails the archive is incomplete, the caller discards it with UploadArchive.abort.
+	 *
+	 * @param archive archive created by openZipFile
+	 *
+	 * @throws IOException
+	 */
+	public static void finishZipFile(final UploadArchive archive)
+			throws IOException {
+
+		Contract.requires(archive != null, "archive mandatory but is null");
+
+		PrepareUpload.addSources(archive);
+		archive.close();
+	}
+
+
+	/**
+	 * Create the (empty) uploadable zip file, an existing one is replaced
+	 *
+	 * @return the archive
+	 *
+	 * @throws IOException
+	 */
+	public static UploadArchive openZipFile()
+			throws IOException {
+
+		final String zipFileName = Settings.outputPath + File.separator + Settings.outZipFilename;
+		final File zipFile = new File(zipFileName);
+		if(zipFile.exists()) {
+			zipFile.delete();
+		}
+
+		return new UploadArchive(zipFile,
+		                         Settings.zipCompressionLevel,
+		                         Settings.zipThreads,
+		                         UploadArchive.DEFAULT_STORED_EXTENSIONS);
+	}
+
 	// ............................................................................
 
 
-	private static void add(final ZipOutputStream archive, final File basedir, final File file)
+	private static void addSources(final UploadArchive archive)
+			throws IOException {
+
+		final File basedir = new File(Settings.outputPath);
+
+		final String propertiesFileName = Settings.outputPath + File.separator + Settings.outPropertyFilename;
+		PrepareUpload.add(archive, basedir, new File(propertiesFileName));
+
+		PrepareUpload.add(archive, basedir, new File("src"));
+	}
+
+
+	private static void add(final UploadArchive archive, final File basedir, final File file)
 			throws IOException {
 
 		if(file.isDirectory()) {
@@ -88,7 +156,7 @@ public final class PrepareUpload {
 	// ............................................................................
 
 
-	private static void addDirectory(final ZipOutputStream archive, final File basedir, final File file)
+	private static void addDirectory(final UploadArchive archive, final File basedir, final File file)
 			throws IOException {
 
 		if(!basedir.equals(file)) {
@@ -98,10 +166,7 @@ public final class PrepareUpload {
 					name += "/";
 				}
 
-				final ZipEntry entry = new ZipEntry(name.substring(basedir.getAbsolutePath().length() + 1));
-				entry.setTime(file.lastModified());
-				archive.putNextEntry(entry);
-				archive.closeEntry();
+				archive.addDirectory(name.substring(basedir.getAbsolutePath().length() + 1), file.lastModified());
 			}
 		}
 
@@ -113,37 +178,11 @@ public final class PrepareUpload {
 	// ----------------------------------------------------------------------------
 
 
-	private static void addFile(final ZipOutputStream archive, final File basedir, final File file)
-			throws IOException, FileNotFoundException {
-
-		BufferedInputStream in = null;
-		try {
-			final ZipEntry entry = new ZipEntry(file.getAbsolutePath()
-			                                        .replace("\\", "/")
-			                                        .substring(basedir.getAbsolutePath().length() + 1));
-			entry.setTime(file.lastModified());
-			archive.putNextEntry(entry);
-
-			in = new BufferedInputStream(new FileInputStream(file));
-			PrepareUpload.copyContent(in, archive);
-
-			archive.closeEntry();
-		} finally {
-			if(in != null) {
-				in.close();
-			}
-		}
-	}
-
-	// ----------------------------------------------------------------------------
-
-
-	private static void copyContent(final InputStream in, final OutputStream out)
+	private static void addFile(final UploadArchive archive, final File basedir, final File file)
 			throws IOException {
 
-		final byte[] buffer = new byte[8192];
-		for(int count = in.read(buffer); count >= 0; count = in.read(buffer)) {
-			out.write(buffer, 0, count);
-		}
+		archive.addFile(file.getAbsolutePath()
+		                    .replace("\\", "/")
+		                    .substring(basedir.getAbsolutePath().length() + 1), file);
 	}
 }
@@ -0,0 +1,152 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import com.knapp.codingcontest.cc20160408.entities.ReplenishmentOrder;
+
+import java.util.Arrays;
+
+/**
+ * In-memory log of the replenishment orders of a run, one primitive column per field
+ * <p>
+ * Keeps the tick, product id, location id and quantity of every order (4 ints) instead of the order
+ * objects and their boxed ticks.
+ */
+public final class ReplenishmentLog implements ReplenishmentSink {
+	// ----------------------------------------------------------------------------
+
+	private int[] ticks;
+	private int[] productIds;
+	private int[] locationIds;
+	private int[] quantities;
+	private int size = 0;
+
+	// ----------------------------------------------------------------------------
+
+
+	public ReplenishmentLog() {
+
+		this(1024);
+	}
+
+
+	/**
+	 * @param initialCapacity number of orders that fit before the columns grow
+	 */
+	public ReplenishmentLog(final int initialCapacity) {
+
+		Contract.requires(initialCapacity > 0, "initialCapacity must be positive");
+
+		ticks = new int[initialCapacity];
+		productIds = new int[initialCapacity];
+		locationIds = new int[initialCapacity];
+		quantities = new int[initialCapacity];
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	@Override
+	public void append(final int tick, final ReplenishmentOrder order) {
+
+		Contract.requires(order != null, "order mandatory but is null");
+
+		if(size == ticks.length) {
+			final int capacity = size * 2;
+			ticks = Arrays.copyOf(ticks, capacity);
+			productIds = Arrays.copyOf(productIds, capacity);
+			locationIds = Arrays.copyOf(locationIds, capacity);
+			quantities = Arrays.copyOf(quantities, capacity);
+		}
+		ticks[size] = tick;
+		productIds[size] = order.getReplenishedProductId();
+		locationIds[size] = order.getReplenishedLocationId();
+		quantities[size] = order.getReplenishedQuantity();
+		size++;
+	}
+
+
+	public void clear() {
+
+		size = 0;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @return number of orders in the log
+	 */
+	public int size() {
+
+		return size;
+	}
+
+
+	/**
+	 * @param index position of the order, 0..size()-1
+	 */
+	public int getTick(final int index) {
+
+		checkIndex(index);
+		return ticks[index];
+	}
+
+
+	public int getProductId(final int index) {
+
+		checkIndex(index);
+		return productIds[index];
+	}
+
+
+	public int getLocationId(final int index) {
+
+		checkIndex(index);
+		return locationIds[index];
+	}
+
+
+	public int getQuantity(final int index) {
+
+		checkIndex(index);
+		return quantities[index];
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * @return a copy of the ticks of all orders, in the sequence they were executed
+	 */
+	public int[] ticks() {
+
+		return Arrays.copyOf(ticks, size);
+	}
+
+
+	public int[] productIds() {
+
+		return Arrays.copyOf(productIds, size);
+	}
+
+
+	public int[] locationIds() {
+
+		return Arrays.copyOf(locationIds, size);
+	}
+
+
+	public int[] quantities() {
+
+		return Arrays.copyOf(quantities, size);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private void checkIndex(final int index) {
+
+		if((index < 0) || (index >= size)) {
+			throw new IndexOutOfBoundsException(String.format("index %d, size %d", index, size));
+		}
+	}
+}
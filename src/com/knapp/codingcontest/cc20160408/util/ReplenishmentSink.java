@@ -0,0 +1,24 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import com.knapp.codingcontest.cc20160408.entities.ReplenishmentOrder;
+
+import java.io.IOException;
+
+/**
+ * Receives every replenishment order of Scheduler.run as soon as it has been executed
+ * <p>
+ * Called on the thread of the simulation in the sequence of the ticks.
+ */
+public interface ReplenishmentSink {
+
+	/**
+	 * A replenishment order has been executed
+	 *
+	 * @param tick  the tick the order has been executed in
+	 * @param order the order
+	 *
+	 * @throws IOException
+	 */
+	void append(int tick, ReplenishmentOrder order)
+			throws IOException;
+}
@@ -3,17 +3,40 @@ package com.knapp.codingcontest.cc20160408.util;
 import com.knapp.codingcontest.cc20160408.entities.ReplenishmentOrder;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
 /**
  * Write for result file
  * <p>
  * Should not be modified
+ * <p>
+ * The lines are encoded directly into a reusable buffer that is written to the channel when
+ * full: ints as digits, the product and location codes from bytes encoded once per code. Orders can
+ * be written all at once (write) or one by one as they are created (append).
  */
-public class ResultWriter {
+public class ResultWriter implements ReplenishmentSink {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
 
-	private BufferedWriter resultFileWriter;
+	/**
+	 * upper bound for the cached codes, the cache is cleared when it is reached
+	 */
+	private static final int MAX_CACHED_CODES = 1 << 16;
+
+	private WritableByteChannel resultFileChannel;
+	private final ByteBuffer buffer = ByteBuffer.allocate(ResultWriter.BUFFER_SIZE);
+
+	/**
+	 * encoded bytes per code, by identity: the codes of an order are the strings of the product and location
+	 */
+	private final Map<String, byte[]> codeBytes = new IdentityHashMap<String, byte[]>();
+	private final byte[] lineSeparator = System.lineSeparator().getBytes();
+	private final byte[] digits = new byte[11];
 
 
 	/**
@@ -32,7 +55,21 @@ public class ResultWriter {
 			file.delete();
 		}
 
-		resultFileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+		resultFileChannel = new FileOutputStream(file).getChannel();
+	}
+
+
+	/**
+	 * Create a result writer that will write to the given channel, e.g. an entry of the upload archive
+	 * The channel is closed with the writer
+	 *
+	 * @param channel
+	 */
+	public ResultWriter(final WritableByteChannel channel) {
+
+		Contract.requires(channel != null, "channel mandatory but is null");
+
+		resultFileChannel = channel;
 	}
 
 
@@ -50,29 +87,178 @@ public class ResultWriter {
 
 		for(final Entry<Integer, ReplenishmentOrder> cro : result) {
 			Contract.requires(null != cro.getKey(), "illegal argument");
-			Contract.requires(null != cro.getValue(), "illegal argument");
 
-			final String resultLine = String.format("%d;%s;%s;%s;%d;",
-			                                        cro.getKey(),
-			                                        cro.getValue().getOrderId(),
-			                                        cro.getValue().getReplenishedProductCode(),
-			                                        cro.getValue().getReplenishedLocation(),
-			                                        cro.getValue().getReplenishedQuantity());
+			append(cro.getKey().intValue(), cro.getValue());
+		}
+		flush();
+	}
+
 
-			resultFileWriter.write(resultLine);
-			resultFileWriter.newLine();
+	/**
+	 * Write one result line: tick;orderId;productCode;locationCode;quantity;
+	 * <p>
+	 * The line is buffered, it reaches the file with the next flush or close at the latest
+	 *
+	 * @param tick  the tick the order has been executed in
+	 * @param order the order
+	 *
+	 * @throws IOException
+	 */
+	@Override
+	public void append(final int tick, final ReplenishmentOrder order)
+			throws IOException {
+
+		Contract.requires(null != order, "illegal argument");
+		Contract.requires(resultFileChannel != null, "writer already closed");
+
+		putInt(tick);
+		putSeparator();
+		putText(order.getOrderId());
+		putSeparator();
+		putBytes(codeBytes(order.getReplenishedProductCode()));
+		putSeparator();
+		putBytes(codeBytes(order.getReplenishedLocation()));
+		putSeparator();
+		putInt(order.getReplenishedQuantity());
+		putSeparator();
+		putBytes(lineSeparator);
+	}
+
+
+	/**
+	 * Write all buffered lines to the file
+	 *
+	 * @throws IOException
+	 */
+	public void flush()
+			throws IOException {
+
+		if(resultFileChannel != null) {
+			drain();
 		}
-		resultFileWriter.flush();
 	}
 
 
 	public void close()
 			throws IOException {
 
-		if(resultFileWriter != null) {
-			resultFileWriter.flush();
-			resultFileWriter.close();
-			resultFileWriter = null;
+		if(resultFileChannel != null) {
+			try {
+				drain();
+			} finally {
+				resultFileChannel.close();
+				resultFileChannel = null;
+			}
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private byte[] codeBytes(final String code) {
+
+		byte[] bytes = codeBytes.get(code);
+		if(bytes == null) {
+			if(codeBytes.size() >= ResultWriter.MAX_CACHED_CODES) {
+				codeBytes.clear();
+			}
+			bytes = String.valueOf(code).getBytes();
+			codeBytes.put(code, bytes);
+		}
+		return bytes;
+	}
+
+
+	private void putSeparator()
+			throws IOException {
+
+		ensureRemaining(1);
+		buffer.put((byte) ';');
+	}
+
+
+	private void putInt(final int value)
+			throws IOException {
+
+		// digits are produced from the negative value, which also covers Integer.MIN_VALUE
+		int remaining = (value < 0) ? value : -value;
+		int start = digits.length;
+		do {
+			digits[--start] = (byte) ('0' - (remaining % 10));
+			remaining /= 10;
+		} while(remaining != 0);
+		if(value < 0) {
+			digits[--start] = (byte) '-';
+		}
+
+		ensureRemaining(digits.length - start);
+		buffer.put(digits, start, digits.length - start);
+	}
+
+
+	/**
+	 * ASCII text is copied char by char, anything else is encoded like the codes
+	 */
+	private void putText(final String text)
+			throws IOException {
+
+		final String value = String.valueOf(text);
+		if(value.length() <= buffer.capacity()) {
+			ensureRemaining(value.length());
+			final int start = buffer.position();
+			int i = 0;
+			for(; i < value.length(); ++i) {
+				final char c = value.charAt(i);
+				if(c >= 0x80) {
+					break;
+				}
+				buffer.put((byte) c);
+			}
+			if(i == value.length()) {
+				return;
+			}
+			buffer.position(start);
+		}
+		putBytes(value.getBytes());
+	}
+
+
+	private void putBytes(final byte[] bytes)
+			throws IOException {
+
+		if(bytes.length > buffer.capacity()) {
+			drain();
+			write(ByteBuffer.wrap(bytes));
+			return;
+		}
+		ensureRemaining(bytes.length);
+		buffer.put(bytes);
+	}
+
+
+	private void ensureRemaining(final int length)
+			throws IOException {
+
+		if(buffer.remaining() < length) {
+			drain();
+		}
+	}
+
+
+	private void drain()
+			throws IOException {
+
+		buffer.flip();
+		write(buffer);
+		buffer.clear();
+	}
+
+
+	private void write(final ByteBuffer bytes)
+			throws IOException {
+
+		while(bytes.hasRemaining()) {
+			resultFileChannel.write(bytes);
 		}
 	}
 }
@@ -1,13 +1,16 @@
 package com.knapp.codingcontest.cc20160408.util;
 
+import com.knapp.codingcontest.cc20160408.Input;
 import com.knapp.codingcontest.cc20160408.Program;
 import com.knapp.codingcontest.cc20160408.Settings;
 import com.knapp.codingcontest.cc20160408.data.LocationCollection;
 import com.knapp.codingcontest.cc20160408.data.PickOrderCollection;
 import com.knapp.codingcontest.cc20160408.data.ProductCollection;
+import com.knapp.codingcontest.cc20160408.data.WarehouseState;
 import com.knapp.codingcontest.cc20160408.entities.*;
 import com.knapp.codingcontest.cc20160408.solution.Solution;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -24,6 +27,53 @@ public class Scheduler {
 	private final PickOrderCollection pickOrderCollection;
 	private final LocationCollection locationCollection;
 
+	/**
+	 * capacities per cycle
+	 */
+	private final SimulationProfile profile;
+
+	/**
+	 * stock and open orders by id, updated with every change to the locations and orders
+	 */
+	private final WarehouseState warehouseState;
+
+	/**
+	 * locations with stock on hand per product id, kept up to date by refillLocations and tryPickOrders
+	 */
+	private final ProductLocations[] fourWall;
+
+	/**
+	 * all orders that were open when the simulation started, in the sequence of the pickOrderCollection
+	 */
+	private final List<WaitingOrder> waitingOrders = new ArrayList<WaitingOrder>();
+
+	/**
+	 * lines of the still open orders per product id
+	 */
+	private final List<List<WaitingLine>> waitingLines;
+
+	/**
+	 * indices into waitingOrders of all open orders that have sufficient stock for every line
+	 */
+	private final BitSet pickableOrders = new BitSet();
+
+	/**
+	 * receives the measurements of every tick, null if nobody is interested
+	 */
+	private SchedulerListener listener = null;
+	private TickLog tickLog = new TickLog();
+
+	/**
+	 * time spent in refillLocations in the current tick, only measured with a listener; the sink of the
+	 * replenishment orders is not included
+	 */
+	private long refillNanos = 0;
+
+	/**
+	 * receives every replenishment order as soon as it is executed, null to collect them for the result of run
+	 */
+	private ReplenishmentSink replenishmentSink = null;
+
 	// ----------------------------------------------------------------------------
 
 
@@ -33,7 +83,6 @@ public class Scheduler {
 	 * @param productCollection   products for the day
 	 * @param pickOrderCollection orders for the day
 	 * @param locationCollection  zone with all locations
-	 * @param resultFilename      name of the file for the result
 	 *
 	 * @throws Exception
 	 */
@@ -42,13 +91,122 @@ public class Scheduler {
 	                 final LocationCollection locationCollection)
 			throws Exception {
 
+		this(productCollection, pickOrderCollection, locationCollection, SimulationProfile.CONTEST);
+	}
+
+
+	/**
+	 * Construct a framework for the simulation of the day with the model of the contest
+	 *
+	 * @param input products, orders and locations for the day
+	 *
+	 * @throws Exception
+	 */
+	public Scheduler(final Input input)
+			throws Exception {
+
+		this(input, SimulationProfile.CONTEST);
+	}
+
+
+	/**
+	 * Construct a framework for the simulation of the day
+	 *
+	 * @param input   products, orders and locations for the day
+	 * @param profile replenishments and picks per cycle, the number of cycles
+	 *
+	 * @throws Exception
+	 */
+	public Scheduler(final Input input, final SimulationProfile profile)
+			throws Exception {
+
+		this(input.getProductCollection(), input.getPickOrderCollection(), input.getLocationCollection(), profile);
+	}
+
+
+	/**
+	 * Construct a framework for the simulation of the day
+	 * <p>
+	 * The scheduler captures its own warehouse state from the collections, run attaches the solution to it
+	 *
+	 * @param productCollection   products for the day
+	 * @param pickOrderCollection orders for the day
+	 * @param locationCollection  zone with all locations
+	 * @param profile             replenishments and picks per cycle, the number of cycles
+	 *
+	 * @throws Exception
+	 */
+	public Scheduler(final ProductCollection productCollection,
+	                 final PickOrderCollection pickOrderCollection,
+	                 final LocationCollection locationCollection,
+	                 final SimulationProfile profile)
+			throws Exception {
+
 		Contract.requires(productCollection != null, "illegal argument");
 		Contract.requires(pickOrderCollection != null, "illegal argument");
 		Contract.requires(locationCollection != null, "illegal argument");
+		Contract.requires(profile != null, "illegal argument");
 
+		if(!pickOrderCollection.hasProductIds()) {
+			throw new IllegalArgumentException("the pick orders have been loaded without products, no order could be picked");
+		}
+		this.profile = profile;
 		this.productCollection = productCollection;
 		this.pickOrderCollection = pickOrderCollection;
 		this.locationCollection = locationCollection;
+		warehouseState = WarehouseState.create(locationCollection, productCollection, pickOrderCollection);
+
+		fourWall = new ProductLocations[productCollection.count()];
+		waitingLines = new ArrayList<List<WaitingLine>>(productCollection.count());
+		for(int productId = 0; productId < productCollection.count(); ++productId) {
+			fourWall[productId] = new ProductLocations();
+			waitingLines.add(new ArrayList<WaitingLine>());
+		}
+
+		for(final Location location : locationCollection.getLocations()) {
+			addToFourWall(location);
+		}
+
+		for(final PickOrder order : pickOrderCollection.getPickOrders()) {
+			addWaitingOrder(order);
+		}
+	}
+
+
+	/**
+	 * Register a listener for the measurements of every tick
+	 *
+	 * @param listener the listener, null to stop measuring
+	 */
+	public void setListener(final SchedulerListener listener) {
+
+		this.listener = listener;
+	}
+
+
+	/**
+	 * Replace the console log of the ticks (by default every 1000th tick is logged)
+	 *
+	 * @param tickLog the log
+	 */
+	public void setTickLog(final TickLog tickLog) {
+
+		Contract.requires(tickLog != null, "tickLog mandatory but is null");
+
+		this.tickLog = tickLog;
+	}
+
+
+	/**
+	 * Hand the replenishment orders to the sink while the simulation runs instead of collecting them
+	 * <p>
+	 * With a sink set, run returns an empty list; closing e.g. a ResultWriter is up to the caller.
+	 *
+	 * @param replenishmentSink the sink (e.g. ResultWriter, ReplenishmentLog), null to collect the orders again
+	 */
+	public void setReplenishmentSink(final ReplenishmentSink replenishmentSink) {
+
+		this.replenishmentSink = replenishmentSink;
 	}
 
 
@@ -57,14 +215,17 @@ public class Scheduler {
 	 * <p>
 	 * It performs the following actions in this sequence:
 	 * (1) call GetNextReplenOrder to get the replen move from your solution
-	 * (2) executes the replen order and adds the stock to the locations
+	 * (or getNextReplenishmentOrders if the profile allows more than one replenishment per cycle)
+	 * (2) executes the replen order(s) and adds the stock to the locations
 	 * (3) picks all orders that have sufficient stock on the locations in
 	 * in the sequence as the orders are listed in the pickOrderCollection
 	 * (4) calls HandlePick in your solution with the ids of all orders that have been picked
+	 * <p>
+	 * Before the first tick the solution is attached to the warehouse state of this scheduler.
 	 *
 	 * @param solution
 	 *
-	 * @return
+	 * @return the replenishment orders with their tick, empty if they are handed to a sink
 	 *
 	 * @throws Exception
 	 */
@@ -73,33 +234,78 @@ public class Scheduler {
 
 		Contract.requires(null != solution, "solution required but is null");
 
+		solution.attach(warehouseState);
+
 		System.err.println(String.format("### Starting work..."));
+		if(profile != SimulationProfile.CONTEST) {
+			System.err.println(String.format("### Profile: %s", profile));
+		}
 		final List<Map.Entry<Integer, ReplenishmentOrder>> replenOrders =
 				new ArrayList<Map.Entry<Integer, ReplenishmentOrder>>();
 
+		if(listener != null) {
+			listener.runStarted(pickOrderCollection.count(), pickOrderCollection.lineCount());
+		}
+
 		int currentTick = 0;
-		while((pickOrderCollection.count() > 0) && (currentTick < Settings.MAX_ALLOWED_CYCLES)) {
+		while((pickOrderCollection.count() > 0) && (currentTick < profile.getMaxCycles())) {
+			final long tickStart = (listener != null) ? System.nanoTime() : 0;
 			final ReplenishmentOrder replenOrder;
+			final List<ReplenishmentOrder> replenBatch;
 			try {
-				replenOrder = solution.getNextReplenishmentOrder();
+				if(profile.getReplenishmentsPerCycle() == 1) {
+					replenOrder = solution.getNextReplenishmentOrder();
+					replenBatch = null;
+				} else {
+					replenOrder = null;
+					replenBatch = solution.getNextReplenishmentOrders(profile.getReplenishmentsPerCycle());
+				}
 			} catch(final Exception e) {
 				Program.showException(e, "USER-Code");
 				throw e;
 			}
 
 			try {
-				if(replenOrder != null) {
-					replenOrders.add(new AbstractMap.SimpleEntry<Integer, ReplenishmentOrder>(Integer.valueOf(currentTick),
-					                                                                          replenOrder));
-					if(!refillLocations(replenOrder, currentTick)) {
-						System.err.println("### Ending because of error during replenishment.");
-						break;
+				final long refillStart = (listener != null) ? System.nanoTime() : 0;
+				refillNanos = 0;
+				boolean refilled = (replenOrder == null) || executeReplenishment(replenOrder, currentTick, replenOrders);
+				if(replenBatch != null) {
+					if(replenBatch.size() > profile.getReplenishmentsPerCycle()) {
+						throw new IllegalArgumentException(String.format("REFILL: %d replenishment orders, only %d allowed per cycle",
+						                                                 replenBatch.size(),
+						                                                 profile.getReplenishmentsPerCycle()));
+					}
+					for(int i = 0; refilled && (i < replenBatch.size()); ++i) {
+						if(replenBatch.get(i) != null) {
+							refilled = executeReplenishment(replenBatch.get(i), currentTick, replenOrders);
+						}
 					}
 				}
+				if(!refilled) {
+					System.err.println("### Ending because of error during replenishment.");
+					break;
+				}
 
+				final long pickStart = (listener != null) ? System.nanoTime() : 0;
 				final List<PickOrder> pickedOrders = tryPickOrders(currentTick);
+
+				final long handleStart = (listener != null) ? System.nanoTime() : 0;
 				solution.handlePickedOrders(Collections.unmodifiableList(pickedOrders));
 
+				if(listener != null) {
+					final long tickEnd = System.nanoTime();
+					listener.tickCompleted(currentTick,
+					                       refillStart - tickStart,
+					                       refillNanos,
+					                       handleStart - pickStart,
+					                       tickEnd - handleStart,
+					                       pickedOrders.size(),
+					                       locationCollection.count() - locationCollection.freeCount(),
+					                       pickOrderCollection.count());
+				}
+				// after the measurements, the console output is not part of any step
+				tickLog.tick(currentTick, pickedOrders.size(), pickOrderCollection.count());
+
 				if(pickOrderCollection.lineCount() == 0) {
 					System.err.println("### Congratulations, all pick orders done!");
 					break;
@@ -114,6 +320,9 @@ public class Scheduler {
 			currentTick++;
 		}
 
+		if(listener != null) {
+			listener.runFinished(currentTick);
+		}
 		System.err.println(String.format("### Ending work @ %d", currentTick));
 		if(pickOrderCollection.count() > 0) {
 			System.err.println(String.format("### Remaining work: %d orders with %d lines",
@@ -163,133 +372,353 @@ public class Scheduler {
 			throw new IllegalArgumentException("REFILL: Exceeded maximum location amount");
 		}
 
+		final long available = getAvailableQuantity(product.getId());
+		removeFromFourWall(target);
 		target.setAssignedProduct(product);
 		target.setQuantityOnHand(target.getQuantityOnHand() + replenishmentOrder.getReplenishedQuantity());
+		locationCollection.updateOccupancy(target);
+		warehouseState.setLocation(target.getId(), product.getId(), target.getQuantityOnHand());
+		addToFourWall(target);
+		updateWaitingLines(product.getId(), available);
 
 		return true;
 	}
 
 
+	/**
+	 * Hand a replenishment order to the sink (or collect it) and execute it
+	 *
+	 * @return false if the order could not be executed
+	 */
+	private boolean executeReplenishment(final ReplenishmentOrder replenOrder,
+	                                     final int currentTick,
+	                                     final List<Map.Entry<Integer, ReplenishmentOrder>> replenOrders)
+			throws IOException {
+
+		if(replenishmentSink != null) {
+			replenishmentSink.append(currentTick, replenOrder);
+		} else {
+			replenOrders.add(new AbstractMap.SimpleEntry<Integer, ReplenishmentOrder>(Integer.valueOf(currentTick),
+			                                                                          replenOrder));
+		}
+		if(listener == null) {
+			return refillLocations(replenOrder, currentTick);
+		}
+
+		final long refillStart = System.nanoTime();
+		final boolean refilled = refillLocations(replenOrder, currentTick);
+		refillNanos += System.nanoTime() - refillStart;
+		return refilled;
+	}
+
+
 	/**
 	 * Pick all orders the have sufficient stock on locations
 	 * <p>
-	 * The orders are searched in the sequence in which they are listed in the pickOrderCollection
+	 * The orders are searched in the sequence in which they are listed in the pickOrderCollection.
+	 * Only the orders flagged as pickable are visited: the flags are maintained whenever the stock
+	 * of a product changes, so picking an order immediately clears the flag of every later order
+	 * that can no longer be fulfilled.
 	 *
 	 * @param currentTick current cycle number
 	 *
 	 * @return orders that have been picked
 	 */
 	private List<PickOrder> tryPickOrders(final int currentTick) {
-		// prepare a list of products with stock on hand and remember the locations
-		final Map<String, ProductLocations> fourWall = getProductsLocations();
 
 		final List<PickOrder> pickedOrders = new ArrayList<PickOrder>();
-		for(final PickOrder order : pickOrderCollection.getPickOrders()) {
-			boolean isPickable = true;
-
-			for(final PickOrderLine line : order.getPickOrderLines()) {
-				if(!fourWall.containsKey(line.getProductCode())) {
-					isPickable = false;
-					break;
-				}
-				final long onHand = sumQuantityOnHand(fourWall.get(line.getProductCode()));
+		for(int i = pickableOrders.nextSetBit(0); i >= 0; i = pickableOrders.nextSetBit(i + 1)) {
+			pickOrder(waitingOrders.get(i));
+			pickedOrders.add(waitingOrders.get(i).order);
 
-				if(onHand < line.getQuantity()) {
-					isPickable = false;
-					break;
-				}
+			if(pickedOrders.size() >= profile.getPicksPerCycle()) {
+				break;
 			}
+		}
 
-			if(isPickable) {
-				for(final PickOrderLine line : order.getPickOrderLines()) {
-					int neededQuantity = line.getQuantity();
-					for(final Location location : fourWall.get(line.getProductCode()).locations) {
-						if(location.getQuantityOnHand() >= neededQuantity) {
-							//(remaining) line can be picked from one location
-							location.setQuantityOnHand(location.getQuantityOnHand() - neededQuantity);
-							if(location.getQuantityOnHand() == 0) {
-								location.setAssignedProduct(null);
-							}
-							break;
-						} else {
-							//pick all items from location
-							final int q = location.getQuantityOnHand();
-							location.setQuantityOnHand(0);
-							location.setAssignedProduct(null);
-							neededQuantity -= q;
-						}
-					}
-				}
-				pickedOrders.add(order);
-				pickOrderCollection.remove(order);
+		return pickedOrders;
+	}
 
-				if(pickedOrders.size() >= Settings.PICKS_PER_CYCLE) {
-					break;
-				}
+
+	/**
+	 * Pick an order: remove it from the open orders and take the stock of its lines from the locations
+	 *
+	 * @param waitingOrder the order to pick, must be feasible
+	 */
+	private void pickOrder(final WaitingOrder waitingOrder) {
+
+		final PickOrder order = waitingOrder.order;
+		removeWaitingOrder(waitingOrder);
+		warehouseState.removeOrder(order.getId());
+
+		for(final PickOrderLine line : order.getPickOrderLines()) {
+			final long available = getAvailableQuantity(line.getProductId());
+			fourWall[line.getProductId()].pick(line.getQuantity(), locationCollection, warehouseState);
+			updateWaitingLines(line.getProductId(), available);
+		}
+		pickOrderCollection.remove(order);
+	}
+
+
+	/**
+	 * Get the quantity of a product that is available for picking
+	 *
+	 * @param productId id of the product, -1 for products that are not known
+	 *
+	 * @return sum of the quantity on all locations, -1 if no location holds the product
+	 */
+	private long getAvailableQuantity(final int productId) {
+
+		if((productId < 0) || fourWall[productId].locations.isEmpty()) {
+			return -1;
+		}
+		return fourWall[productId].quantityOnHand;
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * Start tracking an open order and all of its lines
+	 *
+	 * @param order the order to track
+	 */
+	private void addWaitingOrder(final PickOrder order) {
+
+		final WaitingOrder waitingOrder = new WaitingOrder(order, waitingOrders.size());
+		waitingOrders.add(waitingOrder);
+
+		for(final PickOrderLine line : order.getPickOrderLines()) {
+			final WaitingLine waitingLine = new WaitingLine(waitingOrder, line);
+			if(line.getProductId() >= 0) {
+				final List<WaitingLine> productLines = waitingLines.get(line.getProductId());
+				waitingLine.position = productLines.size();
+				productLines.add(waitingLine);
+			}
+			waitingOrder.lines.add(waitingLine);
+
+			if(waitingLine.isShort(getAvailableQuantity(line.getProductId()))) {
+				waitingOrder.shortLines++;
 			}
 		}
 
-		System.err.println(String.format("[Cyle %d] Picked %d orders, orders left: %d",
-		                                 currentTick,
-		                                 pickedOrders.size(),
-		                                 pickOrderCollection.count()));
-		return pickedOrders;
+		if(waitingOrder.shortLines == 0) {
+			pickableOrders.set(waitingOrder.index);
+		}
 	}
 
 
-	private Map<String, ProductLocations> getProductsLocations() {
+	/**
+	 * Stop tracking an order, e.g. because it has been picked
+	 *
+	 * @param waitingOrder the order to drop
+	 */
+	private void removeWaitingOrder(final WaitingOrder waitingOrder) {
 
-		final Map<String, List<Location>> productsLocations_ = new HashMap<String, List<Location>>();
-		for(final Location l : locationCollection.getLocations()) {
-			if(l.getQuantityOnHand() > 0) {
-				List<Location> pl = productsLocations_.get(l.getAssignedProduct().getCode());
-				if(pl == null) {
-					pl = new ArrayList<Location>();
-					productsLocations_.put(l.getAssignedProduct().getCode(), pl);
-				}
-				pl.add(l);
+		pickableOrders.clear(waitingOrder.index);
+
+		for(final WaitingLine waitingLine : waitingOrder.lines) {
+			if(waitingLine.line.getProductId() < 0) {
+				continue;
+			}
+			final List<WaitingLine> productLines = waitingLines.get(waitingLine.line.getProductId());
+			final WaitingLine last = productLines.remove(productLines.size() - 1);
+			if(last != waitingLine) {
+				last.position = waitingLine.position;
+				productLines.set(last.position, last);
+			}
+		}
+	}
+
+
+	/**
+	 * Re-evaluate the lines waiting for a product after its available quantity changed
+	 * <p>
+	 * Only lines that cross their threshold update the short-line counter of their order
+	 *
+	 * @param productId id of the product whose stock changed
+	 * @param available available quantity before the change
+	 */
+	private void updateWaitingLines(final int productId, final long available) {
+
+		final long newAvailable = getAvailableQuantity(productId);
+		if(newAvailable == available) {
+			return;
+		}
+
+		for(final WaitingLine waitingLine : waitingLines.get(productId)) {
+			final boolean wasShort = waitingLine.isShort(available);
+			final boolean isShort = waitingLine.isShort(newAvailable);
+			if(wasShort != isShort) {
+				final WaitingOrder waitingOrder = waitingLine.order;
+				waitingOrder.shortLines += isShort ? 1 : -1;
+				pickableOrders.set(waitingOrder.index, waitingOrder.shortLines == 0);
 			}
 		}
+	}
 
-		final Map<String, ProductLocations> productsLocations = new HashMap<String, ProductLocations>();
-		for(final Map.Entry<String, List<Location>> e : productsLocations_.entrySet()) {
-			final ProductLocations pl = new ProductLocations(e.getValue());
-			productsLocations.put(e.getKey(), pl);
+
+
+	// ............................................................................
+
+
+	/**
+	 * Register a location with stock on hand in the four wall index
+	 *
+	 * @param location location to add, ignored when it holds no stock
+	 */
+	private void addToFourWall(final Location location) {
+
+		if(location.getQuantityOnHand() > 0) {
+			fourWall[location.getAssignedProduct().getId()].add(location);
 		}
-		return productsLocations;
 	}
 
 
-	private long sumQuantityOnHand(final ProductLocations productLocations) {
+	/**
+	 * Unregister a location from the four wall index
+	 * <p>
+	 * Must be called before the stock or the product of the location is changed
+	 *
+	 * @param location location to remove, ignored when it holds no stock
+	 */
+	private void removeFromFourWall(final Location location) {
 
-		long sum = 0;
-		for(final Location l : productLocations.locations) {
-			sum += l.getQuantityOnHand();
+		if(location.getQuantityOnHand() > 0) {
+			fourWall[location.getAssignedProduct().getId()].remove(location);
 		}
-		return sum;
 	}
 
 	// ===========================================================================
 	// ===========================================================================
 
+	/**
+	 * An open order together with the number of its lines that cannot be picked with the current stock
+	 */
+	private static class WaitingOrder {
+
+		private final PickOrder order;
+		private final int index;
+		private final List<WaitingLine> lines = new ArrayList<WaitingLine>();
+		private int shortLines = 0;
+
+
+		private WaitingOrder(final PickOrder order, final int index) {
+
+			this.order = order;
+			this.index = index;
+		}
+	}
+
+	/**
+	 * A line of an open order, registered with the product it is waiting for
+	 */
+	private static class WaitingLine {
+
+		private final WaitingOrder order;
+		private final PickOrderLine line;
+
+		/**
+		 * position within the list of waiting lines of the product
+		 */
+		private int position;
+
+
+		private WaitingLine(final WaitingOrder order, final PickOrderLine line) {
+
+			this.order = order;
+			this.line = line;
+		}
+
+
+		private boolean isShort(final long available) {
+
+			return available < line.getQuantity();
+		}
+	}
+
+	/**
+	 * All locations holding stock of one product, sorted by quantity on hand (ascending) and code
+	 */
 	private static class ProductLocations {
 
+		private static final Comparator<Location> PICK_SEQUENCE = new Comparator<Location>() {
+			public int compare(final Location l1, final Location l2) {
+
+				final int cmp = l1.getQuantityOnHand() - l2.getQuantityOnHand();
+				if(cmp != 0) {
+					return cmp;
+				}
+				return l1.getCode().compareTo(l2.getCode());
+			}
+		};
+
 		private final List<Location> locations = new ArrayList<Location>();
 
+		/**
+		 * sum of the quantity on hand over all locations
+		 */
+		private long quantityOnHand = 0;
+
+
+		private void add(final Location location) {
+
+			final int index = Collections.binarySearch(locations, location, PICK_SEQUENCE);
+			locations.add(-(index + 1), location);
+			quantityOnHand += location.getQuantityOnHand();
+		}
 
-		private ProductLocations(final List<Location> locations) {
 
-			this.locations.addAll(locations);
-			Collections.sort(this.locations, new Comparator<Location>() {
-				public int compare(final Location l1, final Location l2) {
+		private void remove(final Location location) {
+
+			final int index = Collections.binarySearch(locations, location, PICK_SEQUENCE);
+			locations.remove(index);
+			quantityOnHand -= location.getQuantityOnHand();
+		}
 
-					final int cmp = l1.getQuantityOnHand() - l2.getQuantityOnHand();
-					if(cmp != 0) {
-						return cmp;
+
+		/**
+		 * Take the given quantity from the locations in pick sequence
+		 * <p>
+		 * Emptied locations are released; the location that is only partially picked
+		 * still holds the smallest quantity, so the sequence stays sorted
+		 *
+		 * @param quantity           number of pieces to pick
+		 * @param locationCollection collection that is informed about released locations
+		 * @param warehouseState     state that is informed about every changed location
+		 */
+		private void pick(final int quantity,
+		                  final LocationCollection locationCollection,
+		                  final WarehouseState warehouseState) {
+
+			int neededQuantity = quantity;
+			while(!locations.isEmpty()) {
+				final Location location = locations.get(0);
+				if(location.getQuantityOnHand() >= neededQuantity) {
+					//(remaining) line can be picked from one location
+					location.setQuantityOnHand(location.getQuantityOnHand() - neededQuantity);
+					quantityOnHand -= neededQuantity;
+					warehouseState.setLocation(location.getId(),
+					                           location.getAssignedProduct().getId(),
+					                           location.getQuantityOnHand());
+					if(location.getQuantityOnHand() == 0) {
+						location.setAssignedProduct(null);
+						locationCollection.updateOccupancy(location);
+						locations.remove(0);
 					}
-					return l1.getCode().compareTo(l2.getCode());
+					break;
+				} else {
+					//pick all items from location
+					final int q = location.getQuantityOnHand();
+					warehouseState.setLocation(location.getId(), -1, 0);
+					location.setQuantityOnHand(0);
+					location.setAssignedProduct(null);
+					locationCollection.updateOccupancy(location);
+					locations.remove(0);
+					quantityOnHand -= q;
+					neededQuantity -= q;
 				}
-			});
+			}
 		}
 	}
 }
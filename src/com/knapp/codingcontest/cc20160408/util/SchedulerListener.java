@@ -0,0 +1,49 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+/**
+ * Receives the measurements of every tick of Scheduler.run
+ * <p>
+ * Called on the thread of the simulation with primitive values only, so implementations can record
+ * them without allocating.
+ */
+public interface SchedulerListener {
+
+	/**
+	 * The simulation starts
+	 *
+	 * @param orderCount number of open orders
+	 * @param lineCount  number of open order lines
+	 */
+	void runStarted(int orderCount, int lineCount);
+
+
+	/**
+	 * A tick has been completed
+	 *
+	 * @param tick                        number of the tick
+	 * @param replenishmentNanos          time spent in solution.getNextReplenishmentOrder
+	 * @param refillNanos                 time spent in refillLocations (0 if there was no replenishment),
+	 *                                    without handing the orders to the replenishment sink
+	 * @param pickNanos                   time spent in tryPickOrders
+	 * @param handlePickedNanos           time spent in solution.handlePickedOrders
+	 * @param pickedOrders                number of orders picked in the tick
+	 * @param occupiedLocations           number of locations holding stock after the tick
+	 * @param openOrders                  number of orders still open after the tick
+	 */
+	void tickCompleted(int tick,
+	                   long replenishmentNanos,
+	                   long refillNanos,
+	                   long pickNanos,
+	                   long handlePickedNanos,
+	                   int pickedOrders,
+	                   int occupiedLocations,
+	                   int openOrders);
+
+
+	/**
+	 * The simulation ended
+	 *
+	 * @param ticks number of ticks that have been completed
+	 */
+	void runFinished(int ticks);
+}
@@ -0,0 +1,294 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import com.knapp.codingcontest.cc20160408.Settings;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Records the measurements of a simulation run: a latency histogram per step of a tick and
+ * a time series with one row per tick
+ * <p>
+ * The series is preallocated for Settings.MAX_ALLOWED_CYCLES ticks, so recording does not allocate.
+ */
+public class SchedulerMetrics implements SchedulerListener {
+	// ----------------------------------------------------------------------------
+
+	private static final String[] STEPS = {"getNextReplenishmentOrder", "refillLocations", "tryPickOrders", "handlePickedOrders"};
+	private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+	// ----------------------------------------------------------------------------
+
+	/**
+	 * one histogram per step, in the sequence of STEPS
+	 */
+	private final LatencyHistogram[] histograms = new LatencyHistogram[SchedulerMetrics.STEPS.length];
+
+	/**
+	 * time series, one column per value and one row per tick; the nanos per step are in stepNanos[step][row]
+	 */
+	private final long[][] stepNanos = new long[SchedulerMetrics.STEPS.length][];
+	private int[] pickedOrders;
+	private int[] occupiedLocations;
+	private int[] openOrders;
+	private int rowCount = 0;
+
+	private int initialOrders = 0;
+	private int initialLines = 0;
+	private int ticks = 0;
+
+	// ----------------------------------------------------------------------------
+
+
+	public SchedulerMetrics() {
+
+		for(int step = 0; step < histograms.length; ++step) {
+			histograms[step] = new LatencyHistogram();
+			stepNanos[step] = new long[Settings.MAX_ALLOWED_CYCLES];
+		}
+		pickedOrders = new int[Settings.MAX_ALLOWED_CYCLES];
+		occupiedLocations = new int[Settings.MAX_ALLOWED_CYCLES];
+		openOrders = new int[Settings.MAX_ALLOWED_CYCLES];
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	@Override
+	public void runStarted(final int orderCount, final int lineCount) {
+
+		for(final LatencyHistogram histogram : histograms) {
+			histogram.reset();
+		}
+		rowCount = 0;
+		initialOrders = orderCount;
+		initialLines = lineCount;
+		ticks = 0;
+	}
+
+
+	@Override
+	public void tickCompleted(final int tick,
+	                          final long replenishmentNanos,
+	                          final long refillNanos,
+	                          final long pickNanos,
+	                          final long handlePickedNanos,
+	                          final int pickedOrders,
+	                          final int occupiedLocations,
+	                          final int openOrders) {
+
+		if(rowCount == this.pickedOrders.length) {
+			grow();
+		}
+
+		record(0, replenishmentNanos);
+		record(1, refillNanos);
+		record(2, pickNanos);
+		record(3, handlePickedNanos);
+		this.pickedOrders[rowCount] = pickedOrders;
+		this.occupiedLocations[rowCount] = occupiedLocations;
+		this.openOrders[rowCount] = openOrders;
+		rowCount++;
+	}
+
+
+	@Override
+	public void runFinished(final int ticks) {
+
+		this.ticks = ticks;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param step name of the step, one of getNextReplenishmentOrder, refillLocations, tryPickOrders, handlePickedOrders
+	 *
+	 * @return the histogram of the nanos spent in the step per tick
+	 */
+	public LatencyHistogram getHistogram(final String step) {
+
+		final int index = Arrays.asList(SchedulerMetrics.STEPS).indexOf(step);
+		Contract.requires(index >= 0, "unknown step " + step);
+
+		return histograms[index];
+	}
+
+
+	/**
+	 * Print the percentiles per step (in microseconds)
+	 *
+	 * @param out
+	 */
+	public void printSummary(final PrintStream out) {
+
+		out.println(String.format("### Metrics: %d ticks for %d orders with %d lines", ticks, initialOrders, initialLines));
+		out.println(String.format("    %-26s %10s %10s %10s %10s %10s %10s %12s",
+		                          "step [us]",
+		                          "mean",
+		                          "p50",
+		                          "p90",
+		                          "p99",
+		                          "p99.9",
+		                          "max",
+		                          "total [ms]"));
+		for(int step = 0; step < histograms.length; ++step) {
+			final LatencyHistogram histogram = histograms[step];
+			out.println(String.format("    %-26s %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %12.1f",
+			                          SchedulerMetrics.STEPS[step],
+			                          histogram.getMean() / 1e3,
+			                          histogram.getValueAtPercentile(50) / 1e3,
+			                          histogram.getValueAtPercentile(90) / 1e3,
+			                          histogram.getValueAtPercentile(99) / 1e3,
+			                          histogram.getValueAtPercentile(99.9) / 1e3,
+			                          histogram.getMax() / 1e3,
+			                          histogram.getSum() / 1e6));
+		}
+	}
+
+
+	/**
+	 * Write the time series as csv, one line per tick
+	 *
+	 * @param fullFilename
+	 *
+	 * @throws IOException
+	 */
+	public void writeCsv(final String fullFilename)
+			throws IOException {
+
+		final Writer writer = SchedulerMetrics.open(fullFilename);
+		try {
+			writer.write("tick");
+			for(final String step : SchedulerMetrics.STEPS) {
+				writer.write(";" + step + "Nanos");
+			}
+			writer.write(";pickedOrders;occupiedLocations;openOrders\n");
+
+			final StringBuilder line = new StringBuilder();
+			for(int row = 0; row < rowCount; ++row) {
+				line.setLength(0);
+				line.append(row);
+				for(final long[] nanos : stepNanos) {
+					line.append(';').append(nanos[row]);
+				}
+				line.append(';').append(pickedOrders[row]);
+				line.append(';').append(occupiedLocations[row]);
+				line.append(';').append(openOrders[row]).append('\n');
+				writer.write(line.toString());
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	/**
+	 * Write the summary (with percentiles in nanos) and the time series as json
+	 *
+	 * @param fullFilename
+	 *
+	 * @throws IOException
+	 */
+	public void writeJson(final String fullFilename)
+			throws IOException {
+
+		final Writer writer = SchedulerMetrics.open(fullFilename);
+		try {
+			writer.write("{\n  \"ticks\": " + ticks + ",\n");
+			writer.write("  \"orders\": " + initialOrders + ",\n");
+			writer.write("  \"lines\": " + initialLines + ",\n");
+			writer.write("  \"histograms\": {");
+			for(int step = 0; step < histograms.length; ++step) {
+				final LatencyHistogram histogram = histograms[step];
+				writer.write(((step > 0) ? "," : "") + "\n    \"" + SchedulerMetrics.STEPS[step] + "\": {");
+				writer.write("\"count\": " + histogram.getCount());
+				writer.write(", \"min\": " + histogram.getMin());
+				writer.write(", \"mean\": " + histogram.getMean());
+				for(final double percentile : SchedulerMetrics.PERCENTILES) {
+					writer.write(", \"p" + SchedulerMetrics.formatPercentile(percentile) + "\": " +
+					             histogram.getValueAtPercentile(percentile));
+				}
+				writer.write(", \"max\": " + histogram.getMax() + "}");
+			}
+			writer.write("\n  },\n  \"series\": {");
+			for(int step = 0; step < stepNanos.length; ++step) {
+				SchedulerMetrics.writeJsonColumn(writer, SchedulerMetrics.STEPS[step] + "Nanos", stepNanos[step], rowCount);
+				writer.write(",");
+			}
+			SchedulerMetrics.writeJsonColumn(writer, "pickedOrders", pickedOrders, rowCount);
+			writer.write(",");
+			SchedulerMetrics.writeJsonColumn(writer, "occupiedLocations", occupiedLocations, rowCount);
+			writer.write(",");
+			SchedulerMetrics.writeJsonColumn(writer, "openOrders", openOrders, rowCount);
+			writer.write("\n  }\n}\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private void record(final int step, final long nanos) {
+
+		histograms[step].record(nanos);
+		stepNanos[step][rowCount] = nanos;
+	}
+
+
+	private void grow() {
+
+		final int capacity = Math.max(16, rowCount * 2);
+		for(int step = 0; step < stepNanos.length; ++step) {
+			stepNanos[step] = Arrays.copyOf(stepNanos[step], capacity);
+		}
+		pickedOrders = Arrays.copyOf(pickedOrders, capacity);
+		occupiedLocations = Arrays.copyOf(occupiedLocations, capacity);
+		openOrders = Arrays.copyOf(openOrders, capacity);
+	}
+
+	// ............................................................................
+
+
+	private static Writer open(final String fullFilename)
+			throws IOException {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(fullFilename), "fullFilename mandatory but is null or whitespace");
+
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fullFilename), StandardCharsets.UTF_8));
+	}
+
+
+	private static String formatPercentile(final double percentile) {
+
+		return (percentile == Math.rint(percentile)) ?
+		       Long.toString((long) percentile) :
+		       Double.toString(percentile).replace('.', '_');
+	}
+
+
+	private static void writeJsonColumn(final Writer writer, final String name, final long[] values, final int count)
+			throws IOException {
+
+		final StringBuilder builder = new StringBuilder("\n    \"").append(name).append("\": [");
+		for(int i = 0; i < count; ++i) {
+			builder.append((i > 0) ? "," : "").append(values[i]);
+		}
+		writer.write(builder.append(']').toString());
+	}
+
+
+	private static void writeJsonColumn(final Writer writer, final String name, final int[] values, final int count)
+			throws IOException {
+
+		final StringBuilder builder = new StringBuilder("\n    \"").append(name).append("\": [");
+		for(int i = 0; i < count; ++i) {
+			builder.append((i > 0) ? "," : "").append(values[i]);
+		}
+		writer.write(builder.append(']').toString());
+	}
+
+	// ----------------------------------------------------------------------------
+}
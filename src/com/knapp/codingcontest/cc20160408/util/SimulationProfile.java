@@ -0,0 +1,75 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import com.knapp.codingcontest.cc20160408.Settings;
+
+/**
+ * The capacities of the simulated site per cycle
+ * <p>
+ * CONTEST is the model of the contest: one replenishment and Settings.PICKS_PER_CYCLE picks per cycle,
+ * at most Settings.MAX_ALLOWED_CYCLES cycles. With more than one replenishment per cycle the Scheduler
+ * asks the solution for a batch (Solution.getNextReplenishmentOrders) and applies it in the returned sequence.
+ */
+public final class SimulationProfile {
+	// ----------------------------------------------------------------------------
+
+	public static final SimulationProfile CONTEST = new SimulationProfile(Settings.PICKS_PER_CYCLE,
+	                                                                      1,
+	                                                                      Settings.MAX_ALLOWED_CYCLES);
+
+	// ----------------------------------------------------------------------------
+
+	private final int picksPerCycle;
+	private final int replenishmentsPerCycle;
+	private final int maxCycles;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param picksPerCycle          max. number of pick orders picked per cycle (pick stations)
+	 * @param replenishmentsPerCycle max. number of replenishment orders executed per cycle (replenishment workers)
+	 * @param maxCycles              the simulation ends after this number of cycles
+	 */
+	public SimulationProfile(final int picksPerCycle, final int replenishmentsPerCycle, final int maxCycles) {
+
+		Contract.requires(picksPerCycle > 0, "picksPerCycle must be positive");
+		Contract.requires(replenishmentsPerCycle > 0, "replenishmentsPerCycle must be positive");
+		Contract.requires(maxCycles > 0, "maxCycles must be positive");
+
+		this.picksPerCycle = picksPerCycle;
+		this.replenishmentsPerCycle = replenishmentsPerCycle;
+		this.maxCycles = maxCycles;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	public int getPicksPerCycle() {
+
+		return picksPerCycle;
+	}
+
+
+	public int getReplenishmentsPerCycle() {
+
+		return replenishmentsPerCycle;
+	}
+
+
+	public int getMaxCycles() {
+
+		return maxCycles;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	@Override
+	public String toString() {
+
+		return String.format("picks/cycle=%d replenishments/cycle=%d maxCycles=%d",
+		                     picksPerCycle,
+		                     replenishmentsPerCycle,
+		                     maxCycles);
+	}
+}
@@ -0,0 +1,99 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import java.io.PrintStream;
+
+/**
+ * Console log of the simulation ticks
+ * <p>
+ * Formatting a line per tick costs more than many ticks themselves, so by default only every
+ * sampleInterval-th tick is written.
+ */
+public class TickLog {
+	// ----------------------------------------------------------------------------
+
+	public enum Level {
+		/**
+		 * no tick is logged
+		 */
+		OFF,
+		/**
+		 * every sampleInterval-th tick is logged
+		 */
+		SAMPLED,
+		/**
+		 * every tick is logged
+		 */
+		ALL
+	}
+
+	// ----------------------------------------------------------------------------
+
+	private final Level level;
+	private final int sampleInterval;
+	private final PrintStream out;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Log every 1000th tick to System.err
+	 */
+	public TickLog() {
+
+		this(Level.SAMPLED, 1000, System.err);
+	}
+
+
+	/**
+	 * @param level          which ticks are logged
+	 * @param sampleInterval distance of the logged ticks for Level.SAMPLED
+	 * @param out            stream the log is written to
+	 */
+	public TickLog(final Level level, final int sampleInterval, final PrintStream out) {
+
+		Contract.requires(level != null, "level mandatory but is null");
+		Contract.requires(sampleInterval > 0, "sampleInterval must be positive");
+		Contract.requires(out != null, "out mandatory but is null");
+
+		this.level = level;
+		this.sampleInterval = sampleInterval;
+		this.out = out;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * @param tick number of the tick
+	 *
+	 * @return whether the given tick is written to the log
+	 */
+	public boolean isLogged(final int tick) {
+
+		switch(level) {
+			case ALL:
+				return true;
+			case SAMPLED:
+				return (tick % sampleInterval) == 0;
+			default:
+				return false;
+		}
+	}
+
+
+	/**
+	 * Log the result of a tick, if the level selects it
+	 *
+	 * @param tick         number of the tick
+	 * @param pickedOrders number of orders picked in the tick
+	 * @param openOrders   number of orders still open
+	 */
+	public void tick(final int tick, final int pickedOrders, final int openOrders) {
+
+		if(isLogged(tick)) {
+			out.println(String.format("[Cyle %d] Picked %d orders, orders left: %d", tick, pickedOrders, openOrders));
+		}
+	}
+
+	// ----------------------------------------------------------------------------
+}
@@ -0,0 +1,574 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Zip file writer that compresses the entries in parallel and writes them in the sequence they were added
+ * <p>
+ * Files are read and deflated on a pool of threads; whenever the oldest pending entries are done they are
+ * appended to the archive. Entries can also be streamed (openEntry): they are deflated while they are
+ * written, after all entries added before them. Entries whose name ends with one of the stored extensions,
+ * that do not get smaller, or all entries at level 0 are stored uncompressed.
+ * <p>
+ * Only the plain zip format is written (no zip64): at most 65535 entries and 4 GB, beyond that an
+ * IOException is thrown. An archive that could not be completed is removed with abort().
+ */
+public final class UploadArchive implements Closeable {
+	// ----------------------------------------------------------------------------
+
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074b50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+	private static final int END_SIGNATURE = 0x06054b50;
+
+	private static final int VERSION = 20;
+	private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+	private static final int FLAG_UTF8 = 1 << 11;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+
+	private static final long MAX_SIZE = 0xffffffffL;
+	private static final int MAX_ENTRIES = 0xffff;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * file extensions of already compressed data, stored without deflating
+	 */
+	public static final String[] DEFAULT_STORED_EXTENSIONS = {".zip", ".jar", ".gz", ".png", ".jpg"};
+
+	// ----------------------------------------------------------------------------
+
+	private final File file;
+	private final int level;
+	private final String[] storedExtensions;
+	private final ExecutorService executor;
+
+	private OutputStream out;
+	private boolean completed = false;
+	private long position = 0;
+	private final List<Entry> entries = new ArrayList<Entry>();
+	private final Deque<Future<Entry>> pending = new ArrayDeque<Future<Entry>>();
+	private boolean streaming = false;
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Create the archive, an existing file is replaced
+	 *
+	 * @param file             the zip file
+	 * @param level            compression level (0-9, Deflater.DEFAULT_COMPRESSION), 0 stores all entries
+	 * @param threads          number of threads compressing the entries
+	 * @param storedExtensions names ending with these (e.g. ".zip") are stored
+	 *
+	 * @throws FileNotFoundException
+	 */
+	public UploadArchive(final File file, final int level, final int threads, final String... storedExtensions)
+			throws FileNotFoundException {
+
+		Contract.requires(file != null, "file mandatory but is null");
+		Contract.requires(((level >= 0) && (level <= 9)) || (level == Deflater.DEFAULT_COMPRESSION), "invalid compression level");
+		Contract.requires(threads > 0, "threads must be positive");
+		Contract.requires(storedExtensions != null, "storedExtensions mandatory but is null");
+
+		this.file = file;
+		this.level = level;
+		this.storedExtensions = storedExtensions.clone();
+		executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+
+				final Thread thread = new Thread(runnable, "upload-archive");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Add an entry for a directory
+	 *
+	 * @param name         name in the archive, a '/' is appended if missing
+	 * @param lastModified time of the entry
+	 *
+	 * @throws IOException
+	 */
+	public void addDirectory(final String name, final long lastModified)
+			throws IOException {
+
+		Contract.requires(name != null, "name mandatory but is null");
+
+		final Entry entry = new Entry(name.endsWith("/") ? name : (name + "/"), lastModified);
+		entry.method = UploadArchive.METHOD_STORED;
+		entry.data = new byte[0];
+		entry.dataLength = 0;
+		enqueue(entry);
+	}
+
+
+	/**
+	 * Add the content of a file, it is read and compressed in the background
+	 *
+	 * @param name name in the archive
+	 * @param file the file
+	 *
+	 * @throws IOException
+	 */
+	public void addFile(final String name, final File file)
+			throws IOException {
+
+		Contract.requires(name != null, "name mandatory but is null");
+		Contract.requires(file != null, "file mandatory but is null");
+
+		final Entry entry = new Entry(name, file.lastModified());
+		checkOpen();
+		pending.addLast(executor.submit(new Callable<Entry>() {
+			@Override
+			public Entry call()
+					throws Exception {
+
+				return compress(entry, Files.readAllBytes(file.toPath()));
+			}
+		}));
+		writeCompleted(false);
+	}
+
+
+	/**
+	 * Stream an entry: it is written when all entries added before it have been written, the
+	 * content is deflated while it is written to the returned stream
+	 * <p>
+	 * The entry ends when the stream is closed, no other entries can be added until then.
+	 *
+	 * @param name         name in the archive
+	 * @param lastModified time of the entry
+	 *
+	 * @return the stream for the content of the entry
+	 *
+	 * @throws IOException
+	 */
+	public OutputStream openEntry(final String name, final long lastModified)
+			throws IOException {
+
+		Contract.requires(name != null, "name mandatory but is null");
+
+		checkOpen();
+		writeCompleted(true);
+
+		final Entry entry = new Entry(name, lastModified);
+		entry.method = UploadArchive.METHOD_DEFLATED;
+		entry.flags |= UploadArchive.FLAG_DATA_DESCRIPTOR;
+		writeLocalHeader(entry);
+		streaming = true;
+		return new EntryStream(entry);
+	}
+
+
+	/**
+	 * Write all pending entries and the central directory, the file is complete afterwards
+	 *
+	 * @throws IOException           if the archive exceeds the limits of the zip format
+	 * @throws IllegalStateException if a streamed entry has not been closed
+	 */
+	@Override
+	public void close()
+			throws IOException {
+
+		if(out == null) {
+			return;
+		}
+		try {
+			if(streaming) {
+				throw new IllegalStateException("streamed entry not closed");
+			}
+
+			writeCompleted(true);
+			writeCentralDirectory();
+			out.flush();
+			completed = true;
+		} finally {
+			executor.shutdownNow();
+			out.close();
+			out = null;
+		}
+	}
+
+
+	/**
+	 * Discard an archive that could not be completed: stop the compression and delete the file
+	 * <p>
+	 * Does nothing after close has completed the file.
+	 */
+	public void abort() {
+
+		if(completed) {
+			return;
+		}
+		executor.shutdownNow();
+		if(out != null) {
+			try {
+				out.close();
+			} catch(final IOException e) {
+				// the file is deleted anyway
+			}
+			out = null;
+		}
+		file.delete();
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private void checkOpen() {
+
+		if(out == null) {
+			throw new IllegalStateException("archive already closed");
+		}
+		if(streaming) {
+			throw new IllegalStateException("streamed entry not closed");
+		}
+	}
+
+
+	private void enqueue(final Entry entry)
+			throws IOException {
+
+		checkOpen();
+		final FutureTask<Entry> done = new FutureTask<Entry>(new Callable<Entry>() {
+			@Override
+			public Entry call() {
+
+				return entry;
+			}
+		});
+		done.run();
+		pending.addLast(done);
+		writeCompleted(false);
+	}
+
+
+	/**
+	 * Write the oldest pending entries, all of them or only the ones already compressed
+	 */
+	private void writeCompleted(final boolean all)
+			throws IOException {
+
+		while(!pending.isEmpty() && (all || pending.peekFirst().isDone())) {
+			final Entry entry;
+			try {
+				entry = pending.removeFirst().get();
+			} catch(final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while compressing");
+			} catch(final ExecutionException e) {
+				if(e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException(e.getCause());
+			}
+			writeLocalHeader(entry);
+			writeBytes(entry.data, entry.dataLength);
+			entry.data = null;
+		}
+	}
+
+
+	private Entry compress(final Entry entry, final byte[] content) {
+
+		final CRC32 crc = new CRC32();
+		crc.update(content, 0, content.length);
+		entry.crc = crc.getValue();
+		entry.size = content.length;
+
+		if((level != 0) && !isStored(entry.name)) {
+			final Deflater deflater = new Deflater(level, true);
+			try {
+				deflater.setInput(content);
+				deflater.finish();
+				byte[] data = new byte[Math.max(64, content.length / 2)];
+				int length = 0;
+				while(!deflater.finished()) {
+					if(length == data.length) {
+						data = Arrays.copyOf(data, data.length * 2);
+					}
+					length += deflater.deflate(data, length, data.length - length);
+				}
+				if(length < content.length) {
+					entry.method = UploadArchive.METHOD_DEFLATED;
+					entry.data = data;
+					entry.dataLength = length;
+					entry.compressedSize = length;
+					return entry;
+				}
+			} finally {
+				deflater.end();
+			}
+		}
+		entry.method = UploadArchive.METHOD_STORED;
+		entry.data = content;
+		entry.dataLength = content.length;
+		entry.compressedSize = content.length;
+		return entry;
+	}
+
+
+	private boolean isStored(final String name) {
+
+		final String lowerName = name.toLowerCase(Locale.ROOT);
+		for(final String extension : storedExtensions) {
+			if(lowerName.endsWith(extension.toLowerCase(Locale.ROOT))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ............................................................................
+
+
+	private void writeLocalHeader(final Entry entry)
+			throws IOException {
+
+		if(entries.size() >= UploadArchive.MAX_ENTRIES) {
+			throw new IOException("too many entries for a zip file");
+		}
+		if(entry.size > UploadArchive.MAX_SIZE) {
+			throw new IOException(String.format("entry %s too large for a zip file", entry.name));
+		}
+		if(position > UploadArchive.MAX_SIZE) {
+			throw new IOException("zip file too large");
+		}
+
+		entry.offset = position;
+		entries.add(entry);
+
+		final boolean descriptor = (entry.flags & UploadArchive.FLAG_DATA_DESCRIPTOR) != 0;
+		writeInt(UploadArchive.LOCAL_HEADER_SIGNATURE);
+		writeShort(UploadArchive.VERSION);
+		writeShort(entry.flags);
+		writeShort(entry.method);
+		writeInt(entry.dosTime);
+		writeInt(descriptor ? 0 : entry.crc);
+		writeInt(descriptor ? 0 : entry.compressedSize);
+		writeInt(descriptor ? 0 : entry.size);
+		writeShort(entry.encodedName.length);
+		writeShort(0);
+		writeBytes(entry.encodedName, entry.encodedName.length);
+	}
+
+
+	private void writeCentralDirectory()
+			throws IOException {
+
+		final long start = position;
+		for(final Entry entry : entries) {
+			writeInt(UploadArchive.CENTRAL_HEADER_SIGNATURE);
+			writeShort(UploadArchive.VERSION);
+			writeShort(UploadArchive.VERSION);
+			writeShort(entry.flags);
+			writeShort(entry.method);
+			writeInt(entry.dosTime);
+			writeInt(entry.crc);
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+			writeShort(entry.encodedName.length);
+			writeShort(0);
+			writeShort(0);
+			writeShort(0);
+			writeShort(0);
+			writeInt(0);
+			writeInt(entry.offset);
+			writeBytes(entry.encodedName, entry.encodedName.length);
+		}
+		final long size = position - start;
+		if((start > UploadArchive.MAX_SIZE) || (size > UploadArchive.MAX_SIZE)) {
+			throw new IOException("zip file too large");
+		}
+
+		writeInt(UploadArchive.END_SIGNATURE);
+		writeShort(0);
+		writeShort(0);
+		writeShort(entries.size());
+		writeShort(entries.size());
+		writeInt(size);
+		writeInt(start);
+		writeShort(0);
+	}
+
+
+	private void writeShort(final int value)
+			throws IOException {
+
+		out.write(value & 0xff);
+		out.write((value >>> 8) & 0xff);
+		position += 2;
+	}
+
+
+	private void writeInt(final long value)
+			throws IOException {
+
+		out.write((int) (value & 0xff));
+		out.write((int) ((value >>> 8) & 0xff));
+		out.write((int) ((value >>> 16) & 0xff));
+		out.write((int) ((value >>> 24) & 0xff));
+		position += 4;
+	}
+
+
+	private void writeBytes(final byte[] bytes, final int length)
+			throws IOException {
+
+		out.write(bytes, 0, length);
+		position += length;
+	}
+
+	// ............................................................................
+
+
+	/**
+	 * @return date (high 16 bits) and time (low 16 bits) in MS-DOS format, 1980-01-01 for earlier times
+	 */
+	private static int toDosTime(final long millis) {
+
+		final Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(millis);
+		final int year = calendar.get(Calendar.YEAR);
+		if(year < 1980) {
+			return (1 << 21) | (1 << 16);
+		}
+		return ((year - 1980) << 25) |
+		       ((calendar.get(Calendar.MONTH) + 1) << 21) |
+		       (calendar.get(Calendar.DAY_OF_MONTH) << 16) |
+		       (calendar.get(Calendar.HOUR_OF_DAY) << 11) |
+		       (calendar.get(Calendar.MINUTE) << 5) |
+		       (calendar.get(Calendar.SECOND) >> 1);
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+	private static final class Entry {
+
+		private final String name;
+		private final byte[] encodedName;
+		private final int dosTime;
+		private int flags = UploadArchive.FLAG_UTF8;
+		private int method;
+		private long crc;
+		private long size;
+		private long compressedSize;
+		private long offset;
+
+		/**
+		 * the (compressed) content until the entry is written
+		 */
+		private byte[] data;
+		private int dataLength;
+
+
+		private Entry(final String name, final long lastModified) {
+
+			this.name = name;
+			encodedName = name.getBytes(UploadArchive.UTF8);
+			dosTime = UploadArchive.toDosTime(lastModified);
+		}
+	}
+
+	// ===========================================================================
+
+	/**
+	 * Deflates the content of a streamed entry directly into the archive
+	 */
+	private final class EntryStream extends OutputStream {
+
+		private final Entry entry;
+		private final Deflater deflater = new Deflater(level, true);
+		private final CRC32 crc = new CRC32();
+		private final byte[] buffer = new byte[64 * 1024];
+		private boolean closed = false;
+
+
+		private EntryStream(final Entry entry) {
+
+			this.entry = entry;
+		}
+
+
+		@Override
+		public void write(final int b)
+				throws IOException {
+
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+
+		@Override
+		public void write(final byte[] bytes, final int offset, final int length)
+				throws IOException {
+
+			if(closed) {
+				throw new IllegalStateException("entry already closed");
+			}
+
+			if(length == 0) {
+				return;
+			}
+			crc.update(bytes, offset, length);
+			entry.size += length;
+			deflater.setInput(bytes, offset, length);
+			while(!deflater.needsInput()) {
+				deflate();
+			}
+		}
+
+
+		@Override
+		public void close()
+				throws IOException {
+
+			if(closed) {
+				return;
+			}
+			closed = true;
+			try {
+				deflater.finish();
+				while(!deflater.finished()) {
+					deflate();
+				}
+			} finally {
+				deflater.end();
+			}
+			entry.crc = crc.getValue();
+			if((entry.size > UploadArchive.MAX_SIZE) || (entry.compressedSize > UploadArchive.MAX_SIZE)) {
+				throw new IOException(String.format("entry %s too large for a zip file", entry.name));
+			}
+
+			writeInt(UploadArchive.DATA_DESCRIPTOR_SIGNATURE);
+			writeInt(entry.crc);
+			writeInt(entry.compressedSize);
+			writeInt(entry.size);
+			streaming = false;
+		}
+
+
+		private void deflate()
+				throws IOException {
+
+			final int length = deflater.deflate(buffer, 0, buffer.length);
+			writeBytes(buffer, length);
+			entry.compressedSize += length;
+		}
+	}
+}
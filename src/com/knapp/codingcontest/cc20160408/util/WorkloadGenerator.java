@@ -0,0 +1,404 @@
+package com.knapp.codingcontest.cc20160408.util;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generator for synthetic input data (locations.csv, products.csv and pickorders.csv)
+ * <p>
+ * The defaults resemble the bundled input: 150 aisles with 30 locations, 5445 products of which 30% are
+ * fast movers, 4000 orders with 1 to 7 lines of 1 to 10 pieces. The products an order line refers to are
+ * drawn from a Zipf distribution over the products with the popularity skew as exponent (0 = uniform);
+ * the most popular products are the fast movers. The lines of an order refer to distinct products.
+ * <p>
+ * The same parameters and seed always produce the same files.
+ */
+public final class WorkloadGenerator {
+	// ----------------------------------------------------------------------------
+
+	private long seed = 0;
+
+	private int aisleCount = 150;
+	private int locationsPerAisle = 30;
+
+	private int productCount = 5445;
+	private double fastMoverRatio = 0.3;
+	private Distribution maxLocationQuantity = new Distribution(new int[] {75}, new double[] {1});
+	private double popularitySkew = 0.2;
+
+	private int orderCount = 4000;
+	private Distribution linesPerOrder = new Distribution(new int[] {1, 2, 3, 4, 5, 6, 7},
+	                                                      new double[] {6, 326, 677, 1013, 974, 663, 341});
+	private Distribution lineQuantity = new Distribution(new int[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10},
+	                                                     new double[] {2754, 2798, 2805, 2895, 2736, 865, 772, 800, 769, 782});
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Generate a dataset from the command line
+	 * <p>
+	 * Usage: WorkloadGenerator directory [name=value ...] with the names
+	 * seed, aisles, locationsPerAisle, products, fastMoverRatio, maxLocationQuantity, skew, orders,
+	 * linesPerOrder, lineQuantity and scale (multiplies aisles, products and orders).
+	 * Distributions are given as value:weight,value:weight,...
+	 *
+	 * @param args
+	 *
+	 * @throws IOException
+	 */
+	public static void main(final String... args)
+			throws IOException {
+
+		if(args.length < 1) {
+			System.err.println("usage: WorkloadGenerator directory [name=value ...]");
+			System.exit(-1);
+		}
+
+		final WorkloadGenerator generator = new WorkloadGenerator();
+		int scale = 1;
+		for(int i = 1; i < args.length; ++i) {
+			final int separator = args[i].indexOf('=');
+			if(separator < 0) {
+				throw new IllegalArgumentException("expected name=value but got " + args[i]);
+			}
+			final String name = args[i].substring(0, separator).trim();
+			final String value = args[i].substring(separator + 1).trim();
+			if("seed".equals(name)) {
+				generator.setSeed(Long.parseLong(value));
+			} else if("aisles".equals(name)) {
+				generator.setAisleCount(Integer.parseInt(value));
+			} else if("locationsPerAisle".equals(name)) {
+				generator.setLocationsPerAisle(Integer.parseInt(value));
+			} else if("products".equals(name)) {
+				generator.setProductCount(Integer.parseInt(value));
+			} else if("fastMoverRatio".equals(name)) {
+				generator.setFastMoverRatio(Double.parseDouble(value));
+			} else if("maxLocationQuantity".equals(name)) {
+				generator.setMaxLocationQuantity(Distribution.parse(value));
+			} else if("skew".equals(name)) {
+				generator.setPopularitySkew(Double.parseDouble(value));
+			} else if("orders".equals(name)) {
+				generator.setOrderCount(Integer.parseInt(value));
+			} else if("linesPerOrder".equals(name)) {
+				generator.setLinesPerOrder(Distribution.parse(value));
+			} else if("lineQuantity".equals(name)) {
+				generator.setLineQuantity(Distribution.parse(value));
+			} else if("scale".equals(name)) {
+				scale = Integer.parseInt(value);
+			} else {
+				throw new IllegalArgumentException("unknown parameter " + name);
+			}
+		}
+		generator.setAisleCount(generator.aisleCount * scale);
+		generator.setProductCount(generator.productCount * scale);
+		generator.setOrderCount(generator.orderCount * scale);
+
+		generator.generate(args[0]);
+		System.err.println(String.format("+++ generated: %d locations, %d products, %d orders in %s",
+		                                 generator.aisleCount * generator.locationsPerAisle,
+		                                 generator.productCount,
+		                                 generator.orderCount,
+		                                 args[0]));
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	public void setSeed(final long seed) {
+
+		this.seed = seed;
+	}
+
+
+	public void setAisleCount(final int aisleCount) {
+
+		Contract.requires(aisleCount > 0, "aisleCount must be positive");
+
+		this.aisleCount = aisleCount;
+	}
+
+
+	public void setLocationsPerAisle(final int locationsPerAisle) {
+
+		Contract.requires(locationsPerAisle > 0, "locationsPerAisle must be positive");
+
+		this.locationsPerAisle = locationsPerAisle;
+	}
+
+
+	public void setProductCount(final int productCount) {
+
+		Contract.requires(productCount > 0, "productCount must be positive");
+
+		this.productCount = productCount;
+	}
+
+
+	/**
+	 * @param fastMoverRatio share of the products (the most popular ones) that are flagged as fast movers
+	 */
+	public void setFastMoverRatio(final double fastMoverRatio) {
+
+		Contract.requires((fastMoverRatio >= 0) && (fastMoverRatio <= 1), "fastMoverRatio must be within 0..1");
+
+		this.fastMoverRatio = fastMoverRatio;
+	}
+
+
+	public void setMaxLocationQuantity(final Distribution maxLocationQuantity) {
+
+		Contract.requires(maxLocationQuantity != null, "maxLocationQuantity mandatory but is null");
+
+		this.maxLocationQuantity = maxLocationQuantity;
+	}
+
+
+	/**
+	 * @param popularitySkew exponent of the Zipf distribution of the products over the order lines, 0 for uniform
+	 */
+	public void setPopularitySkew(final double popularitySkew) {
+
+		Contract.requires(popularitySkew >= 0, "popularitySkew must not be negative");
+
+		this.popularitySkew = popularitySkew;
+	}
+
+
+	public void setOrderCount(final int orderCount) {
+
+		Contract.requires(orderCount > 0, "orderCount must be positive");
+
+		this.orderCount = orderCount;
+	}
+
+
+	/**
+	 * @param linesPerOrder distribution of the number of lines, values above the product count are capped
+	 */
+	public void setLinesPerOrder(final Distribution linesPerOrder) {
+
+		Contract.requires(linesPerOrder != null, "linesPerOrder mandatory but is null");
+
+		this.linesPerOrder = linesPerOrder;
+	}
+
+
+	public void setLineQuantity(final Distribution lineQuantity) {
+
+		Contract.requires(lineQuantity != null, "lineQuantity mandatory but is null");
+
+		this.lineQuantity = lineQuantity;
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	/**
+	 * Write locations.csv, products.csv and pickorders.csv, existing files are replaced
+	 *
+	 * @param directory target directory, created if it does not exist
+	 *
+	 * @throws IOException
+	 */
+	public void generate(final String directory)
+			throws IOException {
+
+		Contract.requires(!Contract.isNullOrWhiteSpace(directory), "directory mandatory but is null or whitespace");
+
+		final File target = new File(directory);
+		if(!target.isDirectory() && !target.mkdirs()) {
+			throw new IOException("could not create " + target);
+		}
+
+		final Random random = new Random(seed);
+		writeLocations(new File(target, "locations.csv"));
+
+		// product codes in the sequence of the file, popularity ranks assigned at random
+		final String[] codes = createProductCodes(random);
+		final int[] productByRank = new int[productCount];
+		for(int i = 0; i < productCount; ++i) {
+			productByRank[i] = i;
+		}
+		for(int i = productCount - 1; i > 0; --i) {
+			final int j = random.nextInt(i + 1);
+			final int swap = productByRank[i];
+			productByRank[i] = productByRank[j];
+			productByRank[j] = swap;
+		}
+		final boolean[] fastMover = new boolean[productCount];
+		final int fastMoverCount = (int) Math.round(productCount * fastMoverRatio);
+		for(int rank = 0; rank < fastMoverCount; ++rank) {
+			fastMover[productByRank[rank]] = true;
+		}
+		writeProducts(new File(target, "products.csv"), codes, fastMover, random);
+
+		writeOrders(new File(target, "pickorders.csv"), codes, productByRank, random);
+	}
+
+	// ----------------------------------------------------------------------------
+
+
+	private void writeLocations(final File file)
+			throws IOException {
+
+		final Writer writer = WorkloadGenerator.open(file);
+		try {
+			for(int aisle = 1; aisle <= aisleCount; ++aisle) {
+				for(int position = 1; position <= locationsPerAisle; ++position) {
+					writer.write("PICKING;PICK-" + aisle + ";PICK-" + aisle + "-" + position + ";\n");
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	private void writeProducts(final File file, final String[] codes, final boolean[] fastMover, final Random random)
+			throws IOException {
+
+		final Writer writer = WorkloadGenerator.open(file);
+		try {
+			for(int product = 0; product < productCount; ++product) {
+				writer.write(codes[product] +
+				             ";" +
+				             maxLocationQuantity.next(random) +
+				             ";" +
+				             (fastMover[product] ? "True" : "False") +
+				             ";\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	private void writeOrders(final File file, final String[] codes, final int[] productByRank, final Random random)
+			throws IOException {
+
+		// cumulative Zipf weights over the popularity ranks
+		final double[] cumulative = new double[productCount];
+		double sum = 0;
+		for(int rank = 0; rank < productCount; ++rank) {
+			sum += Math.pow(rank + 1, -popularitySkew);
+			cumulative[rank] = sum;
+		}
+
+		final String orderFormat = "ORDER_%0" + Math.max(4, Integer.toString(orderCount).length()) + "d";
+		final Set<Integer> orderProducts = new HashSet<Integer>();
+		final Writer writer = WorkloadGenerator.open(file);
+		try {
+			for(int order = 1; order <= orderCount; ++order) {
+				final String orderId = String.format(orderFormat, order);
+				final int lines = Math.min(linesPerOrder.next(random), productCount);
+				orderProducts.clear();
+				while(orderProducts.size() < lines) {
+					int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+					rank = Math.min((rank < 0) ? -(rank + 1) : rank, productCount - 1);
+					final int product = productByRank[rank];
+					if(orderProducts.add(product)) {
+						writer.write(orderId + ";" + codes[product] + ";" + lineQuantity.next(random) + "\n");
+					}
+				}
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+
+	private String[] createProductCodes(final Random random) {
+
+		final Set<String> used = new HashSet<String>();
+		final String[] codes = new String[productCount];
+		final StringBuilder builder = new StringBuilder();
+		for(int product = 0; product < productCount; ++product) {
+			do {
+				builder.setLength(0);
+				builder.append("PROD_");
+				final int length = 6 + random.nextInt(3) + ((used.size() > 100000) ? 2 : 0);
+				for(int i = 0; i < length; ++i) {
+					builder.append((char) ('a' + random.nextInt(26)));
+				}
+			} while(!used.add(builder.toString()));
+			codes[product] = builder.toString();
+		}
+		return codes;
+	}
+
+
+	private static Writer open(final File file)
+			throws IOException {
+
+		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+	}
+
+	// ===========================================================================
+	// ===========================================================================
+
+	/**
+	 * Discrete distribution of integer values with relative weights
+	 */
+	public static final class Distribution {
+
+		private final int[] values;
+		private final double[] cumulative;
+
+
+		/**
+		 * @param values  the possible values
+		 * @param weights relative weight per value, not negative and not all 0
+		 */
+		public Distribution(final int[] values, final double[] weights) {
+
+			Contract.requires((values != null) && (weights != null), "values and weights mandatory");
+			Contract.requires((values.length > 0) && (values.length == weights.length), "one weight per value required");
+
+			this.values = values.clone();
+			cumulative = new double[weights.length];
+			double sum = 0;
+			for(int i = 0; i < weights.length; ++i) {
+				Contract.requires(weights[i] >= 0, "weights must not be negative");
+				sum += weights[i];
+				cumulative[i] = sum;
+			}
+			Contract.requires(sum > 0, "at least one weight must be positive");
+		}
+
+
+		/**
+		 * Parse a distribution given as value:weight,value:weight,... (a value without weight has the weight 1)
+		 *
+		 * @param text
+		 *
+		 * @return
+		 */
+		public static Distribution parse(final String text) {
+
+			final String[] entries = text.split(",");
+			final int[] values = new int[entries.length];
+			final double[] weights = new double[entries.length];
+			for(int i = 0; i < entries.length; ++i) {
+				final String[] parts = entries[i].split(":");
+				values[i] = Integer.parseInt(parts[0].trim());
+				weights[i] = (parts.length > 1) ? Double.parseDouble(parts[1].trim()) : 1;
+			}
+			return new Distribution(values, weights);
+		}
+
+
+		private int next(final Random random) {
+
+			final double total = cumulative[cumulative.length - 1];
+			final double point = random.nextDouble() * total;
+			for(int i = 0; i < cumulative.length; ++i) {
+				if(point < cumulative[i]) {
+					return values[i];
+				}
+			}
+			return values[values.length - 1];
+		}
+	}
+}